@@ -0,0 +1,22 @@
+#!/bin/sh
+# Creates an AppCDS archive of the classes loaded by a Group4 run, so that later JVMs
+# map them from the archive instead of loading and verifying them again.
+#
+# Usage: scripts/group4-appcds.sh <classpath> <archive> <main class> [arguments...]
+#
+# The archive is written when the training run exits (JDK 13 or newer). Start later runs with
+#   java -XX:SharedArchiveFile=<archive> -cp <classpath> ...
+# using the same JDK and the same classpath as the training run.
+set -e
+
+if [ "$#" -lt 3 ]; then
+    echo "Usage: $0 <classpath> <archive> <main class> [arguments...]" >&2
+    exit 2
+fi
+
+CLASSPATH_ARG="$1"
+ARCHIVE="$2"
+shift 2
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CLASSPATH_ARG" "$@"
+echo "Wrote $ARCHIVE"
@@ -1,3 +1,4 @@
+import genius.core.bidding.BidDetails;
 import genius.core.boaframework.*;
 
 import java.util.HashSet;
@@ -19,6 +20,29 @@ public class Group4_AS extends AcceptanceStrategy {
     private double t;
     private double c;
     private double tt;
+    private Group4_SessionContext context;
+
+    /** Whether the time rule follows the predicted rounds left instead of the time */
+    private boolean roundAware;
+    private double lastRounds = 1;
+
+    /** Staged mode: 0 off, 1 cheap conditions first, 2 also skip the bid if the offer beats a bound on the next bid */
+    private int staged;
+
+    /** Conditions of the staged mode */
+    private static final int NONE = 0;
+    private static final int BY_UTILITY = 1;
+    private static final int BY_TIME = 2;
+    private static final int BY_NEXT_BID = 3;
+
+    /** Offer that acceptsWithoutNextBid decided on in this turn, and the condition that accepted it */
+    private BidDetails checkedOffer;
+    private int checkedCondition;
+
+    /** Number of accepts for which each of the three conditions held */
+    private int acceptedByNextBid;
+    private int acceptedByTime;
+    private int acceptedByUtility;
 
     /**
      * Empty constructor for the BOA framework.
@@ -35,6 +59,7 @@ public class Group4_AS extends AcceptanceStrategy {
         this.c = c;
         this.t = tau;
         this.tt = tt;
+        this.context = Group4_SessionContext.of(negoSession);
 
     }
 
@@ -44,6 +69,7 @@ public class Group4_AS extends AcceptanceStrategy {
             throws Exception {
         this.negotiationSession = negoSession;
         this.offeringStrategy = strat;
+        this.context = Group4_SessionContext.of(negoSession, parameters);
         if (parameters.get("a") != null || parameters.get("b") != null) {
             a = parameters.get("a");
             b = parameters.get("b");
@@ -60,6 +86,15 @@ public class Group4_AS extends AcceptanceStrategy {
 
 
         }
+        roundAware = parameters.get("roundAware") != null && parameters.get("roundAware") > 0;
+        if (parameters.get("lastRounds") != null) {
+            lastRounds = parameters.get("lastRounds");
+        }
+        staged = parameters.get("staged") != null ? parameters.get("staged").intValue() : 0;
+        if (staged > 0 && strat instanceof Group4_BS) {
+            // Lets the bidding strategy skip choosing a bid for an offer that is accepted anyway
+            ((Group4_BS) strat).setAcceptanceCheck(this::acceptsWithoutNextBid);
+        }
 
     }
 
@@ -72,19 +107,143 @@ public class Group4_AS extends AcceptanceStrategy {
     //Determines if an opponents bid will be accepted based on the utility and time passed
     @Override
     public Actions determineAcceptability() {
+        if (staged > 0) {
+            return determineStaged();
+        }
         double nextMyBidUtil = offeringStrategy.getNextBid()
                 .getMyUndiscountedUtil();
         double lastOpponentBidUtil = negotiationSession.getOpponentBidHistory()
                 .getLastBidDetails().getMyUndiscountedUtil();
         //Bid is accepted if one of three conditions apply (chapter 2.1 in report)
         double maxBidUtil =  negotiationSession.getOpponentBidHistory().getBestBidDetails().getMyUndiscountedUtil();
-        if ((a * lastOpponentBidUtil + b >= nextMyBidUtil) || ((negotiationSession.getTime() >= t)
-                && ( lastOpponentBidUtil >= maxBidUtil * 0.9)) || (lastOpponentBidUtil >= c)) {
+        boolean nextBidCondition = a * lastOpponentBidUtil + b >= nextMyBidUtil;
+        boolean timeCondition = (acceptanceTime() >= t) && (lastOpponentBidUtil >= maxBidUtil * 0.9);
+        boolean utilityCondition = lastOpponentBidUtil >= c;
+        if (nextBidCondition || timeCondition || utilityCondition) {
+            // Count every condition that holds, to report how often each of them fires
+            acceptedByNextBid += nextBidCondition ? 1 : 0;
+            acceptedByTime += timeCondition ? 1 : 0;
+            acceptedByUtility += utilityCondition ? 1 : 0;
             return Actions.Accept;
         }
         return Actions.Reject;
     }
 
+    /**
+     * Checks the cheap conditions first and only looks at the next own bid when they do not
+     * accept, so the bid is not needed for an accepted offer. If Group4_BS skipped the bid
+     * because acceptsWithoutNextBid accepted this offer, that decision is taken as it is, so
+     * the offer of the opponent which stands in for our bid is never sent. Conditions that
+     * were not checked are not counted.
+     */
+    private Actions determineStaged() {
+        BidDetails last = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+        int condition;
+        if (last == checkedOffer && checkedCondition != NONE) {
+            condition = checkedCondition;
+        } else {
+            double lastOpponentBidUtil = last.getMyUndiscountedUtil();
+            condition = cheapCondition(lastOpponentBidUtil);
+            // The bid has been chosen by now, so the exact comparison is made
+            if (condition == NONE
+                    && a * lastOpponentBidUtil + b >= offeringStrategy.getNextBid().getMyUndiscountedUtil()) {
+                condition = BY_NEXT_BID;
+            }
+        }
+        checkedOffer = null;
+        switch (condition) {
+            case BY_UTILITY:
+                acceptedByUtility++;
+                return Actions.Accept;
+            case BY_TIME:
+                acceptedByTime++;
+                return Actions.Accept;
+            case BY_NEXT_BID:
+                acceptedByNextBid++;
+                return Actions.Accept;
+            default:
+                return Actions.Reject;
+        }
+    }
+
+    /**
+     * Asked by Group4_BS in the staged mode before it chooses a bid. The decision is kept for
+     * the offer and used by determineAcceptability, so the two cannot disagree.
+     *
+     * @return Whether the last offer of the opponent is accepted whatever the next own bid is.
+     */
+    boolean acceptsWithoutNextBid() {
+        BidDetails last = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+        if (last == null) {
+            return false;
+        }
+        double lastOpponentBidUtil = last.getMyUndiscountedUtil();
+        int condition = cheapCondition(lastOpponentBidUtil);
+        if (condition == NONE) {
+            // No bid has a utility above 1, in the second staged mode Group4_BS bounds the next bid more
+            // tightly, so an offer is only accepted early if the exact rule would accept it too
+            double bound = staged > 1 && offeringStrategy instanceof Group4_BS
+                    ? ((Group4_BS) offeringStrategy).getNextBidUpperBound() : 1.0;
+            if (a * lastOpponentBidUtil + b >= bound) {
+                condition = BY_NEXT_BID;
+            }
+        }
+        checkedOffer = last;
+        checkedCondition = condition;
+        return condition != NONE;
+    }
+
+    /**
+     * @return The condition which accepts the offer without the next own bid, or NONE.
+     */
+    private int cheapCondition(double lastOpponentBidUtil) {
+        if (lastOpponentBidUtil >= c) {
+            return BY_UTILITY;
+        }
+        double maxBidUtil = negotiationSession.getOpponentBidHistory().getBestBidDetails().getMyUndiscountedUtil();
+        if ((acceptanceTime() >= t) && (lastOpponentBidUtil >= maxBidUtil * 0.9)) {
+            return BY_TIME;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return The normalized time, or in the round aware mode the share of the predicted rounds
+     * that has been used, which is 1 once no more than lastRounds rounds are left.
+     */
+    private double acceptanceTime() {
+        if (!roundAware) {
+            return context.getTime();
+        }
+        Group4_RoundLatency latency = context.getRoundLatency();
+        latency.update(negotiationSession);
+        if (latency.getRoundsLeft() <= lastRounds) {
+            return 1.0;
+        }
+        return latency.getRoundTime(0);
+    }
+
+    /**
+     * @return Number of accepts for which a * u + b was at least the utility of the next own bid.
+     */
+    public int getAcceptedByNextBid() {
+        return acceptedByNextBid;
+    }
+
+    /**
+     * @return Number of accepts for which the time rule held.
+     */
+    public int getAcceptedByTime() {
+        return acceptedByTime;
+    }
+
+    /**
+     * @return Number of accepts for which the utility was at least c.
+     */
+    public int getAcceptedByUtility() {
+        return acceptedByUtility;
+    }
+
     @Override
     public Set<BOAparameter> getParameterSpec() {
 
@@ -100,6 +259,12 @@ public class Group4_AS extends AcceptanceStrategy {
                 "After t passed, accepts bid if it is at least tt% of maximum given bid"));
         set.add(new BOAparameter("c", 0.95,
                 "Accept when the opponent's utility is higher than c. (c should be set pretty high)"));
+        set.add(new BOAparameter("roundAware", 0.0,
+                "If higher than 0 the time t is compared with the share of the predicted rounds that has been used"));
+        set.add(new BOAparameter("lastRounds", 1.0,
+                "If roundAware, the time rule applies once no more than this many rounds are left"));
+        set.add(new BOAparameter("staged", 0.0,
+                "1 checks the conditions without the next bid first, 2 also skips the bid if the offer beats an upper bound of its utility"));
 
         return set;
     }
@@ -0,0 +1,117 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.NoModel;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * Configuration of a BOA agent as a single line of text, so that it can be passed on the
+ * command line and written to work queues.
+ *
+ * The line consists of entries separated by ';'. The entries bs, as, om and oms give the class
+ * names of the components, and entries of the form component.parameter give the parameters,
+ * for example "bs=Group4_BS;as=Group4_AS;om=Group4_OM;oms=Group4_OMS;bs.minUtility=0.6".
+ * Classes of the BOA framework may be given without package. An om of "none" means NoModel,
+ * and the oms may be left out for agents without an opponent model.
+ */
+public class Group4_AgentConfig {
+
+    /** Our own agent with its default parameters */
+    public static final String GROUP4 = "bs=Group4_BS;as=Group4_AS;om=Group4_OM;oms=Group4_OMS";
+
+    private final String spec;
+    private final Map<String, String> classes = new HashMap<>();
+    private final Map<String, Map<String, Double>> parameters = new HashMap<>();
+
+    private Group4_AgentConfig(String spec) {
+        this.spec = spec;
+        for (String component : new String[] {"bs", "as", "om", "oms"}) {
+            parameters.put(component, new HashMap<>());
+        }
+    }
+
+    /**
+     * @param spec the configuration line.
+     * @return The parsed configuration.
+     */
+    public static Group4_AgentConfig parse(String spec) {
+        Group4_AgentConfig config = new Group4_AgentConfig(spec.trim());
+        for (String entry : config.spec.split(";")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] keyValue = entry.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Entry without value in agent configuration: " + entry);
+            }
+            String key = keyValue[0].trim();
+            String value = keyValue[1].trim();
+            int dot = key.indexOf('.');
+            if (dot < 0) {
+                if (!config.parameters.containsKey(key)) {
+                    throw new IllegalArgumentException("Unknown component in agent configuration: " + key);
+                }
+                config.classes.put(key, value);
+            } else {
+                Map<String, Double> component = config.parameters.get(key.substring(0, dot));
+                if (component == null) {
+                    throw new IllegalArgumentException("Unknown component in agent configuration: " + key);
+                }
+                component.put(key.substring(dot + 1), Double.parseDouble(value));
+            }
+        }
+        if (!config.classes.containsKey("bs") || !config.classes.containsKey("as")) {
+            throw new IllegalArgumentException("Agent configuration needs a bs and an as: " + spec);
+        }
+        return config;
+    }
+
+    /**
+     * @return The parameters of the component (bs, as, om or oms), which may be modified.
+     */
+    public Map<String, Double> getParameters(String component) {
+        return parameters.get(component);
+    }
+
+    public OfferingStrategy createBiddingStrategy() throws Exception {
+        return (OfferingStrategy) instantiate(classes.get("bs"));
+    }
+
+    public AcceptanceStrategy createAcceptanceStrategy() throws Exception {
+        return (AcceptanceStrategy) instantiate(classes.get("as"));
+    }
+
+    public OpponentModel createOpponentModel() throws Exception {
+        String name = classes.get("om");
+        if (name == null || name.equals("none")) {
+            return new NoModel();
+        }
+        return (OpponentModel) instantiate(name);
+    }
+
+    /**
+     * @return The opponent model strategy, or null if none is configured.
+     */
+    public OMStrategy createOMStrategy() throws Exception {
+        String name = classes.get("oms");
+        return name == null ? null : (OMStrategy) instantiate(name);
+    }
+
+    private static Object instantiate(String name) throws Exception {
+        Class<?> type;
+        try {
+            type = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            type = Class.forName("genius.core.boaframework." + name);
+        }
+        return type.getDeclaredConstructor().newInstance();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
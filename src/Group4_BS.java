@@ -1,7 +1,15 @@
-import java.security.acl.Group;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import genius.core.bidding.BidDetails;
 import genius.core.boaframework.BOAparameter;
@@ -11,6 +19,7 @@ import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
 import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.misc.Range;
 
 /**
  * This is an abstract class used to implement a TimeDependentAgent Strategy
@@ -25,6 +34,13 @@ public class Group4_BS extends OfferingStrategy {
     /** Outcome space */
     private SortedOutcomeSpace outcomespace;
 
+    /** Whether the outcome space is built on first use instead of in init */
+    private boolean lazyInit;
+
+    /** Number of bids made in the cooperative and in the offensive profile */
+    private int cooperativeBids;
+    private int offensiveBids;
+
     /** Sets the threshold regarding when to
      *  scare the opponent (eg. 90% of the time)
      *  Takes values between 0 and 1
@@ -44,6 +60,54 @@ public class Group4_BS extends OfferingStrategy {
     /** Starting offensive utility */
     private double offensiveUtility;
 
+    /** Randomness and clock of the session */
+    private Group4_SessionContext context;
+
+    /** Same constants as the window of OMStrategy */
+    private static final double INITIAL_UPPER_BOUND = 0.01;
+    private static final double RANGE_INCREMENT = 0.01;
+
+    /** Maximum number of precomputations waiting for a thread, further ones are not started */
+    private static final int SPECULATION_QUEUE = 64;
+
+    /** Background threads which precompute the next bid, shared by all sessions and bounded by the number of cores */
+    private static final ThreadPoolExecutor SPECULATOR = new ThreadPoolExecutor(
+            Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+            30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(SPECULATION_QUEUE), r -> {
+        Thread thread = new Thread(r, "Group4_BS speculation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SPECULATOR.allowCoreThreadTimeOut(true);
+    }
+
+    /** Whether the next bid is precomputed while waiting for the opponent */
+    private boolean speculate;
+
+    /** Maximum difference in target utility for which a precomputed window is reused */
+    private double speculationTolerance;
+
+    /** Precomputation for the next round, null if none is running */
+    private Future<Speculation> speculation;
+
+    /** Whether the concession follows the predicted rounds left instead of the time */
+    private boolean roundAware;
+
+    /** Number of rounds left from which the agent concedes to the minimum utility */
+    private double lastRounds;
+
+    /** Asked before a bid is chosen whether the offer of the opponent is accepted anyway, null if not staged */
+    private BooleanSupplier acceptanceCheck;
+
+    /** Number of rounds for which no bid was chosen because the offer was accepted */
+    private int skippedBids;
+
+    /** Time of the previous bid and the smoothed time between bids, -1 if unknown */
+    private double lastTime;
+    private double roundDuration;
+
     /**
      * Method which initializes the agent by setting all parameters.
      */
@@ -55,8 +119,14 @@ public class Group4_BS extends OfferingStrategy {
 
         super.init(negoSession, parameters);
         this.negotiationSession = negoSession;
-        outcomespace = new SortedOutcomeSpace(negotiationSession.getUtilitySpace());
-        negotiationSession.setOutcomeSpace(outcomespace);
+        this.context = Group4_SessionContext.of(negoSession, parameters);
+        // In the lazy startup mode the outcome space is taken from the per-JVM cache on the first bid
+        this.lazyInit = parameters.get("lazyInit") != null && parameters.get("lazyInit") > 0;
+        outcomespace = null;
+        if (!lazyInit) {
+            outcomespace = new SortedOutcomeSpace(negotiationSession.getUtilitySpace());
+            negotiationSession.setOutcomeSpace(outcomespace);
+        }
 
         // Assign parameters to class
         if (parameters.get("scareThreshold") != null)
@@ -82,6 +152,25 @@ public class Group4_BS extends OfferingStrategy {
         else
             this.offensiveUtility = 0.90;
 
+        // Assign parameters to class
+        this.speculate = parameters.get("speculate") != null && parameters.get("speculate") > 0;
+        if (parameters.get("speculationTolerance") != null)
+            this.speculationTolerance = parameters.get("speculationTolerance");
+        else
+            this.speculationTolerance = 0.005;
+        this.speculation = null;
+
+        // Assign parameters to class
+        this.roundAware = parameters.get("roundAware") != null && parameters.get("roundAware") > 0;
+        if (parameters.get("lastRounds") != null)
+            this.lastRounds = parameters.get("lastRounds");
+        else
+            this.lastRounds = 1;
+        this.lastTime = -1;
+        this.roundDuration = -1;
+        this.acceptanceCheck = null;
+        this.skippedBids = 0;
+
         this.opponentModel = model;
         this.omStrategy = oms;
     }
@@ -101,6 +190,12 @@ public class Group4_BS extends OfferingStrategy {
             if (opponentModel instanceof Group4_OM) {
                 return ((Group4_OM)opponentModel).getOpponentCooperative();
             }
+            if (opponentModel instanceof Group4_EnsembleOM) {
+                return ((Group4_EnsembleOM)opponentModel).getOpponentCooperative();
+            }
+            if (opponentModel instanceof Group4_OpponentRegistry) {
+                return ((Group4_OpponentRegistry)opponentModel).getOpponentCooperative();
+            }
         } catch (Exception e) {
             return false;
         }
@@ -122,24 +217,31 @@ public class Group4_BS extends OfferingStrategy {
     @Override
     public BidDetails determineNextBid() {
 
+        // In the staged mode of Group4_AS no bid is chosen for an offer that will be accepted,
+        // the offer itself stands in for the bid as it is never sent
+        if (acceptanceCheck != null && acceptanceCheck.getAsBoolean()) {
+            skippedBids++;
+            nextBid = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+            return nextBid;
+        }
+
         // TODO:
         // 1. Find whether the model is offensive or cooperative
         // 2. Check the time if it's close to 90% and apply scare attacks - DONE
-        double time = negotiationSession.getTime();
-        double utilityGoal = 1;
+        double time = context.getTime();
+        // The turn is measured before the scare sleep below, which is not part of the round latency
+        Group4_RoundLatency latency = context.getRoundLatency();
+        latency.update(negotiationSession);
 
         // What is the agent's profile?
-
-
-        if (isOpponentCooperative()) {
-
-            /**
-             * Cooperative Profile
-             * The agent concedes with more ease over time as it tries to find
-             * an offer that both users will agree on
-             */
-            utilityGoal = p(time);
+        boolean cooperative = isOpponentCooperative();
+        if (cooperative) {
+            cooperativeBids++;
         } else {
+            offensiveBids++;
+        }
+
+        if (!cooperative) {
 
             /**
              * Offensive Profile
@@ -154,29 +256,268 @@ public class Group4_BS extends OfferingStrategy {
                     // Calculate how much time to sleep (50% of remaining time)
                     double timeLeft = negotiationSession.getTimeline().getTotalTime() - negotiationSession.getTimeline().getCurrentTime();
                     long timeToSleep = (long)(timeLeft * 1000 / 2);
-                    Thread.sleep(timeToSleep);
+                    context.getClock().sleep(timeToSleep);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
-            }
-
-            // Step 2: Do not concede unless a configurable amount of time passed
-            if (time >= concedeThreshold) {
-                utilityGoal = p(time);
-            } else {
-                utilityGoal = this.offensiveUtility;
+                latency.resume();
             }
         }
+        double utilityGoal = targetUtility(concessionTime(time, 0), cooperative);
+        SortedOutcomeSpace outcomespace = outcomeSpace();
 
         // if there is no opponent model available
         if (opponentModel instanceof NoModel) {
             nextBid = negotiationSession.getOutcomeSpace().getBidNearUtility(utilityGoal);
+        } else if (speculate) {
+            nextBid = takeSpeculation(cooperative, utilityGoal);
+            startSpeculation(time);
         } else {
             nextBid = omStrategy.getBid(outcomespace, utilityGoal);
         }
         return nextBid;
     }
 
+    /**
+     * Sets the check of the staged mode of Group4_AS, see determineNextBid.
+     */
+    public void setAcceptanceCheck(BooleanSupplier acceptanceCheck) {
+        this.acceptanceCheck = acceptanceCheck;
+    }
+
+    /**
+     * @return The target utility of a bid made now, without choosing the bid.
+     */
+    public double getTargetUtility() {
+        if (roundAware) {
+            context.getRoundLatency().update(negotiationSession);
+        }
+        return targetUtility(concessionTime(context.getTime(), 0), isOpponentCooperative());
+    }
+
+    /**
+     * Bounds the utility of the bid made now without choosing it. The bid comes from the first
+     * window above the target utility that holds a bid, or is the bid nearest to the target
+     * without a model, so it is below the lowest utility at or above the target plus one window
+     * step. A reused speculation may have aimed up to the tolerance higher. The target only
+     * goes down while the bid is made, so the bound holds.
+     *
+     * @return An upper bound on the utility of the next bid.
+     */
+    public double getNextBidUpperBound() {
+        double target = getTargetUtility() + (speculate ? speculationTolerance : 0);
+        List<BidDetails> outcomes = outcomeSpace().getAllOutcomes();
+        // The outcomes are sorted from high to low utility
+        int low = 0;
+        int high = outcomes.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (outcomes.get(middle).getMyUndiscountedUtil() >= target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, outcomes.get(low - 1).getMyUndiscountedUtil() + RANGE_INCREMENT);
+    }
+
+    /**
+     * @return The outcome space, which is taken from Group4_StartupCache on first use in the lazy startup mode.
+     */
+    private SortedOutcomeSpace outcomeSpace() {
+        if (outcomespace == null) {
+            outcomespace = Group4_StartupCache.outcomeSpace(negotiationSession.getUtilitySpace());
+            negotiationSession.setOutcomeSpace(outcomespace);
+        }
+        return outcomespace;
+    }
+
+    /**
+     * Determines the time the concession is based on. In the round aware mode this is the
+     * share of the predicted rounds that has been used, and the end of the negotiation once
+     * no more than lastRounds rounds are left.
+     *
+     * @param time the normalized time of the current turn.
+     * @param ahead number of turns after the current turn.
+     * @return The time for the concession.
+     */
+    private double concessionTime(double time, int ahead) {
+        if (!roundAware) {
+            return time;
+        }
+        Group4_RoundLatency latency = context.getRoundLatency();
+        if (latency.getRoundsLeft() - ahead <= lastRounds) {
+            return 1.0;
+        }
+        return latency.getRoundTime(ahead);
+    }
+
+    /**
+     * Determines the target utility for the given time and profile.
+     *
+     * @param time the normalized time.
+     * @param cooperative whether the opponent is cooperative.
+     * @return The target utility.
+     */
+    private double targetUtility(double time, boolean cooperative) {
+        if (cooperative) {
+
+            /**
+             * Cooperative Profile
+             * The agent concedes with more ease over time as it tries to find
+             * an offer that both users will agree on
+             */
+            return p(time);
+        }
+        // Step 2: Do not concede unless a configurable amount of time passed
+        if (time >= concedeThreshold) {
+            return p(time);
+        }
+        return this.offensiveUtility;
+    }
+
+    /**
+     * Uses the speculation of the previous round if it still holds. The outcome space
+     * window is reused if the profile is unchanged and the target utility is within the
+     * tolerance, the chosen bid is reused if in addition the snapshot of Group4_OM it was
+     * scored against is still the current one, as with a throttled update policy.
+     * Otherwise the bid is determined as usual. A speculation that did not finish yet is
+     * cancelled instead of waited for, as it may still be queued behind other sessions, except
+     * in the deterministic mode where the bid may not depend on the thread scheduling.
+     */
+    private BidDetails takeSpeculation(boolean cooperative, double utilityGoal) {
+        Speculation candidate = null;
+        if (speculation != null) {
+            if (speculation.isDone() || context.isDeterministic()) {
+                try {
+                    candidate = speculation.get();
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                speculation.cancel(true);
+            }
+            speculation = null;
+        }
+        if (candidate == null || candidate.cooperative != cooperative
+                || Math.abs(candidate.utilityGoal - utilityGoal) > speculationTolerance) {
+            return omStrategy.getBid(outcomespace, utilityGoal);
+        }
+        if (candidate.window.isEmpty()) {
+            return outcomespace.getMaxBidPossible();
+        }
+        if (candidate.choice != null && candidate.snapshot == modelSnapshot()) {
+            return candidate.choice;
+        }
+        return omStrategy.getBid(candidate.window);
+    }
+
+    /**
+     * Starts the precomputation of the next bid for the predicted time of the next round,
+     * while the opponent is thinking.
+     */
+    private void startSpeculation(double time) {
+        if (lastTime >= 0) {
+            roundDuration = roundDuration < 0 ? time - lastTime : 0.5 * roundDuration + 0.5 * (time - lastTime);
+        }
+        lastTime = time;
+        if (roundDuration < 0) {
+            return;
+        }
+        double nextTime = roundAware ? concessionTime(time, 1) : Math.min(1.0, time + roundDuration);
+        // Evaluating the model on another thread would draw from the random stream of the OMS in a different order
+        boolean score = !context.isDeterministic();
+        try {
+            speculation = SPECULATOR.submit(() -> speculate(nextTime, score));
+        } catch (RejectedExecutionException e) {
+            // All threads are busy, the next bid is determined as usual
+            speculation = null;
+        }
+    }
+
+    /**
+     * Computes the window of the outcome space for the given time and, if allowed, chooses
+     * a bid from it. The choice is only kept if the snapshot of the model was the same before
+     * and after scoring: snapshots are immutable and never published twice, so every evaluation
+     * in between read that snapshot.
+     */
+    private Speculation speculate(double time, boolean score) {
+        Speculation result = new Speculation();
+        result.cooperative = isOpponentCooperative();
+        result.utilityGoal = targetUtility(time, result.cooperative);
+
+        // Same window as OMStrategy.getBid(SortedOutcomeSpace, double)
+        Range range = new Range(result.utilityGoal, result.utilityGoal + INITIAL_UPPER_BOUND);
+        result.window = outcomespace.getBidsinRange(range);
+        while (result.window.isEmpty() && range.getUpperbound() < 1.01) {
+            range.increaseUpperbound(RANGE_INCREMENT);
+            result.window = outcomespace.getBidsinRange(range);
+        }
+
+        Group4_OM.Snapshot snapshot = modelSnapshot();
+        if (score && snapshot != null && !result.window.isEmpty()) {
+            try {
+                BidDetails choice = omStrategy.getBid(result.window);
+                if (snapshot == modelSnapshot()) {
+                    result.choice = choice;
+                    result.snapshot = snapshot;
+                }
+            } catch (Exception e) {
+                // The model changed while scoring, the choice is made again on arrival
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The current snapshot of the opponent model, or null if the model does not publish
+     * snapshots, in which case a precomputed choice is never reused.
+     */
+    private Group4_OM.Snapshot modelSnapshot() {
+        if (opponentModel instanceof Group4_OM) {
+            return ((Group4_OM)opponentModel).getSnapshot();
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of bids made in the cooperative profile.
+     */
+    public int getCooperativeBids() {
+        return cooperativeBids;
+    }
+
+    /**
+     * @return Number of bids made in the offensive profile.
+     */
+    public int getOffensiveBids() {
+        return offensiveBids;
+    }
+
+    /**
+     * @return Number of rounds for which no bid was chosen in the staged mode of Group4_AS.
+     */
+    public int getSkippedBids() {
+        return skippedBids;
+    }
+
+    /**
+     * Cancels a running precomputation and releases the session, to be called by the harness
+     * when the negotiation is over.
+     */
+    public void cleanUp() {
+        if (speculation != null) {
+            speculation.cancel(true);
+            speculation = null;
+        }
+        if (negotiationSession != null) {
+            Group4_SessionContext.remove(negotiationSession);
+        }
+    }
+
     public NegotiationSession getNegotiationSession() {
         return negotiationSession;
     }
@@ -188,6 +529,11 @@ public class Group4_BS extends OfferingStrategy {
         set.add(new BOAparameter("concedeThreshold", 0.90, "Offensive profile concede time threshold"));
         set.add(new BOAparameter("offensiveUtility", 0.90, "Starting offensive utility"));
         set.add(new BOAparameter("min", 0.50, "Minimum utility"));
+        set.add(new BOAparameter("lazyInit", 0.0, "If higher than 0 the outcome space is built on the first bid and shared between sessions"));
+        set.add(new BOAparameter("speculate", 0.0, "If higher than 0 the next bid is precomputed while waiting for the opponent"));
+        set.add(new BOAparameter("roundAware", 0.0, "If higher than 0 the concession follows the predicted rounds left instead of the time"));
+        set.add(new BOAparameter("lastRounds", 1.0, "Rounds left from which the agent concedes to the minimum utility, if roundAware"));
+        set.add(new BOAparameter("speculationTolerance", 0.005, "Maximum target utility difference for which a precomputed window is reused"));
         return set;
     }
 
@@ -207,4 +553,15 @@ public class Group4_BS extends OfferingStrategy {
     public double p(double t) {
         return minUtility + (1 - minUtility) * (1 -  Math.pow(t, 1.0 / 1.0));
     }
-}
\ No newline at end of file
+
+    /**
+     * Result of a precomputation for the next round.
+     */
+    private static class Speculation {
+        boolean cooperative;
+        double utilityGoal;
+        List<BidDetails> window;
+        BidDetails choice;
+        Group4_OM.Snapshot snapshot;
+    }
+}
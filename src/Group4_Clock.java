@@ -0,0 +1,91 @@
+import java.lang.ref.WeakReference;
+
+import genius.core.boaframework.NegotiationSession;
+
+/**
+ * Source of the normalized negotiation time used by the Group4 components.
+ *
+ * By default the time is read from the negotiation session. In the deterministic
+ * mode of Group4_SessionContext a logical clock is used instead, which derives the
+ * time from the number of exchanged bids, so that runs do not depend on the wall clock.
+ *
+ * The clocks only hold their session weakly, as Group4_SessionContext keeps them in a map
+ * which is keyed weakly by the session. A clock of a collected session is at the end.
+ */
+public interface Group4_Clock {
+
+    /**
+     * @return The normalized time, between 0 and 1.
+     */
+    double getTime();
+
+    /**
+     * Waits for the given amount of milliseconds, as used by the scare tactic of the bidding strategy.
+     *
+     * @param millis amount of milliseconds to wait.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * @param session the negotiation session to read the time from.
+     * @return A clock which reads the time of the session and sleeps on the wall clock.
+     */
+    static Group4_Clock session(NegotiationSession session) {
+        WeakReference<NegotiationSession> reference = new WeakReference<>(session);
+        return new Group4_Clock() {
+            @Override
+            public double getTime() {
+                NegotiationSession session = reference.get();
+                return session == null ? 1.0 : session.getTime();
+            }
+
+            @Override
+            public void sleep(long millis) throws InterruptedException {
+                Thread.sleep(millis);
+            }
+        };
+    }
+
+    /**
+     * @param session the negotiation session to read the time from.
+     * @return A clock which reads the time of the session and never sleeps, for simulated sessions.
+     */
+    static Group4_Clock simulated(NegotiationSession session) {
+        WeakReference<NegotiationSession> reference = new WeakReference<>(session);
+        return new Group4_Clock() {
+            @Override
+            public double getTime() {
+                NegotiationSession session = reference.get();
+                return session == null ? 1.0 : session.getTime();
+            }
+
+            @Override
+            public void sleep(long millis) {
+            }
+        };
+    }
+
+    /**
+     * @param session the negotiation session whose bid histories are counted.
+     * @param rounds the number of rounds of the negotiation, each round being one bid of each party.
+     * @return A clock which advances one step per exchanged bid and never sleeps.
+     */
+    static Group4_Clock logical(NegotiationSession session, int rounds) {
+        WeakReference<NegotiationSession> reference = new WeakReference<>(session);
+        return new Group4_Clock() {
+            @Override
+            public double getTime() {
+                NegotiationSession session = reference.get();
+                if (session == null) {
+                    return 1.0;
+                }
+                int bids = session.getOwnBidHistory().size() + session.getOpponentBidHistory().size();
+                return Math.min(1.0, bids / (2.0 * rounds));
+            }
+
+            @Override
+            public void sleep(long millis) {
+            }
+        };
+    }
+}
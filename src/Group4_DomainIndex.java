@@ -0,0 +1,191 @@
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable index tables of a discrete domain, shared by all models of the domain.
+ *
+ * Every issue gets a dense position and every value a dense index within its issue,
+ * so that models can keep their state in primitive arrays instead of a copy of the
+ * utility space. All values of all issues are laid out in one flat table, where the
+ * values of the issue at position i start at getOffset(i).
+ */
+public final class Group4_DomainIndex {
+
+	private static final Map<Domain, Group4_DomainIndex> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	// Indices by domain name, so that a domain which is loaded again for a new session reuses its index.
+	private static final Map<String, Group4_DomainIndex> INDICES_BY_NAME = new ConcurrentHashMap<>();
+
+	private final IssueDiscrete[] issues;
+	private final int[] issueNumbers;
+	private final Map<Integer, Integer> positions;
+	private final List<Map<Value, Integer>> valueIndices;
+	private final int[] offsets;
+	private final int totalValues;
+
+	private Group4_DomainIndex(Domain domain) {
+		List<Issue> domainIssues = domain.getIssues();
+		issues = new IssueDiscrete[domainIssues.size()];
+		issueNumbers = new int[issues.length];
+		positions = new HashMap<>();
+		valueIndices = new ArrayList<>();
+		offsets = new int[issues.length + 1];
+		for (int i = 0; i < issues.length; i++) {
+			issues[i] = (IssueDiscrete) domainIssues.get(i);
+			issueNumbers[i] = issues[i].getNumber();
+			positions.put(issueNumbers[i], i);
+			Map<Value, Integer> values = new HashMap<>();
+			List<ValueDiscrete> issueValues = issues[i].getValues();
+			for (int v = 0; v < issueValues.size(); v++) {
+				values.put(issueValues.get(v), v);
+			}
+			valueIndices.add(values);
+			offsets[i + 1] = offsets[i] + issueValues.size();
+		}
+		totalValues = offsets[issues.length];
+	}
+
+	/**
+	 * Returns the index of the domain. The index is built once per JVM for every domain name.
+	 * Values are looked up by equality, so the index of a domain can be used for another
+	 * instance of the same domain, as long as the issues and their values are the same.
+	 * A domain with the same name but other values gets a new index.
+	 *
+	 * @param domain a discrete domain.
+	 * @return The index of the domain, built once and shared afterwards.
+	 */
+	public static Group4_DomainIndex of(Domain domain) {
+		synchronized (INDICES) {
+			Group4_DomainIndex index = INDICES.get(domain);
+			if (index == null) {
+				index = domain.getName() == null ? null : INDICES_BY_NAME.get(domain.getName());
+				if (index == null || !index.matches(domain)) {
+					index = new Group4_DomainIndex(domain);
+					if (domain.getName() != null) {
+						INDICES_BY_NAME.put(domain.getName(), index);
+					}
+				}
+				INDICES.put(domain, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * @return If the domain has the same issue numbers and values, in the same order, as this index.
+	 */
+	private boolean matches(Domain domain) {
+		List<Issue> domainIssues = domain.getIssues();
+		if (domainIssues.size() != issues.length) {
+			return false;
+		}
+		for (int i = 0; i < issues.length; i++) {
+			Issue issue = domainIssues.get(i);
+			if (issue.getNumber() != issueNumbers[i] || !(issue instanceof IssueDiscrete)
+					|| ((IssueDiscrete) issue).getNumberOfValues() != getValueCount(i)) {
+				return false;
+			}
+			List<ValueDiscrete> values = ((IssueDiscrete) issue).getValues();
+			for (int v = 0; v < values.size(); v++) {
+				if (getValueIndex(i, values.get(v)) != v) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The number of issues.
+	 */
+	public int getIssueCount() {
+		return issues.length;
+	}
+
+	/**
+	 * @return The issue at the given position.
+	 */
+	public IssueDiscrete getIssue(int position) {
+		return issues[position];
+	}
+
+	/**
+	 * @return The issue number of the issue at the given position.
+	 */
+	public int getIssueNumber(int position) {
+		return issueNumbers[position];
+	}
+
+	/**
+	 * @return The position of the issue with the given number, or -1 if it does not exist.
+	 */
+	public int getPosition(int issueNumber) {
+		Integer position = positions.get(issueNumber);
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * @return The number of values of the issue at the given position.
+	 */
+	public int getValueCount(int position) {
+		return offsets[position + 1] - offsets[position];
+	}
+
+	/**
+	 * @return The index in the flat value table of the first value of the issue at the given position.
+	 */
+	public int getOffset(int position) {
+		return offsets[position];
+	}
+
+	/**
+	 * @return The number of values of all issues together.
+	 */
+	public int getTotalValues() {
+		return totalValues;
+	}
+
+	/**
+	 * @return The index of the value within the issue at the given position.
+	 */
+	public int getValueIndex(int position, Value value) {
+		Integer index = valueIndices.get(position).get(value);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return The value with the given index of the issue at the given position.
+	 */
+	public ValueDiscrete getValue(int position, int index) {
+		return issues[position].getValue(index);
+	}
+
+	/**
+	 * Encodes a bid as the value index of every issue.
+	 *
+	 * @param bid the bid to encode.
+	 * @param into array of at least getIssueCount() entries to write into.
+	 * @return The array that was written into.
+	 */
+	public int[] encode(Bid bid, int[] into) {
+		for (int i = 0; i < issues.length; i++) {
+			into[i] = getValueIndex(i, bid.getValue(issueNumbers[i]));
+		}
+		return into;
+	}
+
+	/**
+	 * @param bid the bid to encode.
+	 * @return The value index of every issue.
+	 */
+	public int[] encode(Bid bid) {
+		return encode(bid, new int[issues.length]);
+	}
+}
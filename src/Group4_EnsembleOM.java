@@ -0,0 +1,328 @@
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ensemble of opponent models which runs the frequency/time Group4_OM and the
+ * Bayesian Group4_OM side by side.
+ *
+ * Member updates are fanned out on a small executor. Updates of a single member
+ * are applied in order, but the members run in parallel. Members which only use
+ * their own state (the Bayesian model) are not waited for, so their update latency
+ * is kept out of the updateModel call and out of the evaluations. The model is
+ * evaluated against the last completed state of each member, read under the lock of
+ * the member, so the bids of a round can see the background member before and after
+ * its update. Callers which need a consistent round compare getModelEpoch before and
+ * after evaluating, or set await_all.
+ *
+ * The blend weights follow the recent prediction accuracy of each member. Each new
+ * opponent offer is compared with our own last offer, which the opponent rejected
+ * by making the new offer. A member that rates our offer higher than the opponent's
+ * own offer suffers a loss, and the weights are an exponentially weighted
+ * average (Hedge) of these losses.
+ *
+ * Default settings: threads = 2; eta = 2.0; decay = 0.9; await_all = 0; max_pending = 8
+ */
+public class Group4_EnsembleOM extends OpponentModel {
+
+	// Number of threads used to update the members.
+	private int threads;
+
+	// Learning rate of the member weights. Higher values follow the losses more closely.
+	private double eta;
+
+	// Discount of old losses, so the weights follow the recent accuracy.
+	private double decay;
+
+	// If true, updateModel waits for every member update to finish.
+	private boolean awaitAll;
+
+	// Maximum number of queued updates per member before the caller waits.
+	private int maxPending;
+
+	private List<Member> members;
+
+	// Version of the blend, incremented before and after the weights or a member change.
+	private final AtomicLong modelEpoch = new AtomicLong();
+	private ExecutorService executor;
+
+	@Override
+	public void init(NegotiationSession negotiationSession, Map<String, Double> parameters) {
+		this.negotiationSession = negotiationSession;
+		threads = 2;
+		eta = 2.0;
+		decay = 0.9;
+		awaitAll = false;
+		maxPending = 8;
+		Map<String, Double> frequencyParameters = new HashMap<>();
+		Map<String, Double> bayesianParameters = new HashMap<>();
+		// Assign parameters to class, the members get the remaining parameters
+		if (parameters != null) {
+			for (Map.Entry<String, Double> p : parameters.entrySet()) {
+				switch (p.getKey()) {
+					case "threads":
+						threads = Math.max(1, p.getValue().intValue());
+						break;
+					case "eta":
+						eta = p.getValue();
+						break;
+					case "decay":
+						decay = p.getValue();
+						break;
+					case "await_all":
+						awaitAll = p.getValue() > 0.0;
+						break;
+					case "max_pending":
+						maxPending = Math.max(1, p.getValue().intValue());
+						break;
+					case "seed":
+					case "rounds":
+						break;
+					case "bayes_m":
+						bayesianParameters.put("m", p.getValue());
+						break;
+					default:
+						frequencyParameters.put(p.getKey(), p.getValue());
+				}
+			}
+		}
+
+
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "Group4_EnsembleOM");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		members = new ArrayList<>();
+		Group4_OM frequencyModel = new Group4_OM();
+		frequencyModel.init(negotiationSession, frequencyParameters);
+		members.add(new Member(frequencyModel, true));
+		bilateralexamples.boacomponents.Group4_OM bayesianModel = new bilateralexamples.boacomponents.Group4_OM();
+		bayesianModel.init(negotiationSession, bayesianParameters);
+		members.add(new Member(bayesianModel, false));
+	}
+
+	@Override
+	public void updateModel(Bid opponentBid, double time) {
+		modelEpoch.incrementAndGet();
+		scoreMembers(opponentBid);
+		modelEpoch.incrementAndGet();
+
+		List<CompletableFuture<Void>> awaited = new ArrayList<>();
+		for (Member member : members) {
+			// Do not let a slow member build an unbounded backlog
+			if (member.pending.get() >= maxPending) {
+				member.tail.join();
+			}
+			member.pending.incrementAndGet();
+			member.tail = member.tail.thenRunAsync(() -> {
+				modelEpoch.incrementAndGet();
+				try {
+					member.update(opponentBid, time);
+				} finally {
+					modelEpoch.incrementAndGet();
+				}
+			}, executor);
+			if (awaitAll || member.onCriticalPath || isDeterministic()) {
+				awaited.add(member.tail);
+			}
+		}
+		try {
+			CompletableFuture.allOf(awaited.toArray(new CompletableFuture[0])).join();
+		} catch (CompletionException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Deterministic runs may not depend on how far the background updates got. The context is
+	 * looked up instead of created, as the strategies that declare the seed are initialized later.
+	 */
+	private boolean isDeterministic() {
+		Group4_SessionContext context = Group4_SessionContext.find(negotiationSession);
+		return context != null && context.isDeterministic();
+	}
+
+	@Override
+	public double getBidEvaluation(Bid bid) {
+		double result = 0;
+		double totalWeight = 0;
+		for (Member member : members) {
+			member.lock.readLock().lock();
+			try {
+				result += member.weight * member.model.getBidEvaluation(bid);
+				totalWeight += member.weight;
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				member.lock.readLock().unlock();
+			}
+		}
+		return totalWeight > 0 ? result / totalWeight : 0.0;
+	}
+
+	/**
+	 * @return A copy of the opponent utility space of the member with the highest weight, as
+	 * the space of the member itself is changed by its next update.
+	 */
+	@Override
+	public AdditiveUtilitySpace getOpponentUtilitySpace() {
+		Member best = members.get(0);
+		for (Member member : members) {
+			if (member.weight > best.weight) {
+				best = member;
+			}
+		}
+		best.lock.readLock().lock();
+		try {
+			AdditiveUtilitySpace space = best.model.getOpponentUtilitySpace();
+			return space == null ? null : (AdditiveUtilitySpace) space.copy();
+		} finally {
+			best.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return If the opponent is cooperative according to the frequency/time model.
+	 */
+	public boolean getOpponentCooperative() {
+		for (Member member : members) {
+			if (member.model instanceof Group4_OM) {
+				return ((Group4_OM) member.model).getOpponentCooperative();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The epoch is incremented before and after the weights or a member change. Members
+	 * update in parallel, so the epoch can be odd for a while; readers only need to
+	 * check that it did not change while evaluating.
+	 *
+	 * @return The version of the blend
+	 */
+	public long getModelEpoch() {
+		return modelEpoch.get();
+	}
+
+	/**
+	 * @return The current blend weights, in the order of the members.
+	 */
+	public double[] getMemberWeights() {
+		double[] weights = new double[members.size()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = members.get(i).weight;
+		}
+		return weights;
+	}
+
+	@Override
+	public void cleanUp() {
+		super.cleanUp();
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (members != null) {
+			for (Member member : members) {
+				member.model.cleanUp();
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "Group4 - Ensemble Opponent Model";
+	}
+
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("threads", 2.0, "Number of threads used to update the member models"));
+		set.add(new BOAparameter("eta", 2.0, "Learning rate of the member weights"));
+		set.add(new BOAparameter("decay", 0.9, "Discount of old prediction losses"));
+		set.add(new BOAparameter("await_all", 0.0, "If higher than 0 every member update is waited for"));
+		set.add(new BOAparameter("max_pending", 8.0, "Maximum number of queued updates per member"));
+		set.add(new BOAparameter("bayes_m", 0.0, "Parameter m of the Bayesian member"));
+		set.add(new BOAparameter("l", 0.2, "The learning coefficient of the frequency member"));
+		set.add(new BOAparameter("m", 2.0, "Parameter m of the frequency member"));
+		set.add(new BOAparameter("w_frequency", 0.5, "Weight of the frequency model utility"));
+		set.add(new BOAparameter("w_time", 0.5, "Weight of time model utility"));
+		return set;
+	}
+
+	/**
+	 * Updates the loss of each member with the new opponent offer and recomputes the
+	 * weights. The opponent rejected our last offer by making the new offer, so a
+	 * good model rates the new offer at least as high as our last offer.
+	 */
+	private void scoreMembers(Bid opponentBid) {
+		BidDetails ownLast = negotiationSession.getOwnBidHistory().getLastBidDetails();
+		if (ownLast == null) {
+			return;
+		}
+		for (Member member : members) {
+			member.lock.readLock().lock();
+			try {
+				double loss = Math.max(0.0, member.model.getBidEvaluation(ownLast.getBid())
+						- member.model.getBidEvaluation(opponentBid));
+				member.loss = decay * member.loss + loss;
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				member.lock.readLock().unlock();
+			}
+		}
+		double minLoss = Double.MAX_VALUE;
+		for (Member member : members) {
+			minLoss = Math.min(minLoss, member.loss);
+		}
+		double total = 0;
+		for (Member member : members) {
+			total += Math.exp(-eta * (member.loss - minLoss));
+		}
+		for (Member member : members) {
+			member.weight = Math.exp(-eta * (member.loss - minLoss)) / total;
+		}
+	}
+
+	/**
+	 * A member model together with the state needed to update it in the background.
+	 */
+	private static class Member {
+		final OpponentModel model;
+		// Members that read the negotiation session while updating have to finish within the round
+		final boolean onCriticalPath;
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		final AtomicInteger pending = new AtomicInteger();
+		volatile CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+		volatile double weight = 1.0;
+		double loss;
+
+		Member(OpponentModel model, boolean onCriticalPath) {
+			this.model = model;
+			this.onCriticalPath = onCriticalPath;
+		}
+
+		void update(Bid bid, double time) {
+			lock.writeLock().lock();
+			try {
+				model.updateModel(bid, time);
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				lock.writeLock().unlock();
+				pending.decrementAndGet();
+			}
+		}
+	}
+}
@@ -14,9 +14,18 @@ import java.util.Map.Entry;
 /**
  * BOA framework implementation of the HardHeaded Frequency Model.
  * Which is modified to take into account the time of offers.
- * 
- * Default settings: l = 0.2; v = 1.0; m = 2.0; w_time = 0.5; w_frequency = 0.5
- * 
+ *
+ * Default settings: l = 0.2; v = 1.0; m = 2.0; w_time = 0.5; w_frequency = 0.5; history = 0; downsample = 0; decay = 0
+ *
+ * With a decay the value counts decay by that fraction per learned offer, so the model follows an
+ * opponent that changes its stance. Every learned offer multiplies all counts, so an update costs
+ * O(values) and not O(issues). Publishing a snapshot copies the count table anyway (see Draft),
+ * as every offer changes a count of every issue.
+ *
+ * The model is published as immutable snapshots (see Snapshot). An update builds the next
+ * snapshot from copies of the arrays of the current one and swaps it in, so the model can be
+ * evaluated on any thread, also while it is updated. Updates come from a single thread.
+ *
  * paper: https://ii.tudelft.nl/sites/default/files/boa.pdf
  */
 public class Group4_OM extends OpponentModel {
@@ -28,6 +37,9 @@ public class Group4_OM extends OpponentModel {
 	// Value which is added to a value if it is found. Determines how fast the value weights converge.
 	private int learnValueAddition;
 
+	// Factor the value counts are multiplied with per learned offer, 1 for no decay.
+	private double decayFactor = 1;
+
 	// Value which determines how lenient the offensive profile labeling is. Higher values are less lenient.
 	private double profileDeterminationMoves;
 
@@ -35,15 +47,34 @@ public class Group4_OM extends OpponentModel {
 	private double frequencyWeight;
 	private double timeWeight;
 
+	// Maximum number of stored offers, and what happens when more offers arrive.
+	private int historyCapacity = Integer.MAX_VALUE;
+	private Group4_OfferHistory.Policy historyPolicy = Group4_OfferHistory.Policy.RING;
+
 	private int amountOfIssues;
 	private double goldenValue;
-	private boolean isOpponentCooperative;
-	private List<Bid> offers;
-	private List<Issue> issues;
+	private volatile boolean isOpponentCooperative;
+	// Offers of the opponent, stored as value indices of the domain index.
+	private Group4_OfferHistory offers;
+	private Group4_DomainIndex index;
+
+	// The current version of the model.
+	private volatile Snapshot snapshot;
+	// Epoch of the snapshot that opponentUtilitySpace was built from.
+	private long spaceEpoch = -1;
+
+	// Value indices of the previous applied offer, which the weights are learned from.
+	private int[] previousValues;
+	// Offers which are not applied yet, see Group4_UpdatePolicy.
+	private final List<Bid> pendingBids = new ArrayList<>();
+	private final List<Double> pendingTimes = new ArrayList<>();
+	// Looked up on the first update, after the strategies of the agent created it.
+	private Group4_SessionContext context;
 
 	@Override
 	public void init(NegotiationSession negotiationSession, Map<String, Double> parameters) {
 		this.negotiationSession = negotiationSession;
+		this.context = null;
 		// Assign parameters to class
 		if (parameters != null) {
 			if (parameters.get("l") != null) {
@@ -66,6 +97,21 @@ public class Group4_OM extends OpponentModel {
 			} else {
 				timeWeight = 0.5;
 			}
+			if (parameters.get("history") != null && parameters.get("history") > 0) {
+				historyCapacity = parameters.get("history").intValue();
+			} else {
+				historyCapacity = Integer.MAX_VALUE;
+			}
+			if (parameters.get("downsample") != null && parameters.get("downsample") > 0) {
+				historyPolicy = Group4_OfferHistory.Policy.DOWNSAMPLE;
+			} else {
+				historyPolicy = Group4_OfferHistory.Policy.RING;
+			}
+			if (parameters.get("decay") != null && parameters.get("decay") > 0 && parameters.get("decay") < 1) {
+				decayFactor = 1 - parameters.get("decay");
+			} else {
+				decayFactor = 1;
+			}
 		}
 		if (timeWeight + frequencyWeight != 1.0) {
 			timeWeight = 0.5;
@@ -73,8 +119,10 @@ public class Group4_OM extends OpponentModel {
 		}
 
 		learnValueAddition = 1;
-		opponentUtilitySpace = (AdditiveUtilitySpace) negotiationSession.getUtilitySpace().copy();
-		amountOfIssues = opponentUtilitySpace.getDomain().getIssues().size();
+		// The utility space is only built when asked for, see getOpponentUtilitySpace
+		opponentUtilitySpace = null;
+		spaceEpoch = -1;
+		amountOfIssues = negotiationSession.getUtilitySpace().getDomain().getIssues().size();
 		/*
 		 * This is the value to be added to weights of unchanged issues before
 		 * normalization. Also the value that is taken as the minimum possible
@@ -83,31 +131,146 @@ public class Group4_OM extends OpponentModel {
 		goldenValue = learnCoef / amountOfIssues;
 
 		isOpponentCooperative = true;
-		offers = new ArrayList<>();
-		issues = opponentUtilitySpace.getDomain().getIssues();
+		index = Group4_DomainIndex.of(negotiationSession.getUtilitySpace().getDomain());
+		offers = new Group4_OfferHistory(amountOfIssues, historyCapacity, historyPolicy);
+		previousValues = null;
+		pendingBids.clear();
+		pendingTimes.clear();
+		snapshot = initialSnapshot();
+	}
+
+	/**
+	 * Init to flat weight and flat evaluation distribution
+	 */
+	private Snapshot initialSnapshot() {
+		double[] weights = new double[amountOfIssues];
+		Arrays.fill(weights, 1D / amountOfIssues);
+		// Set all value weights to one (they are normalized when calculating the utility)
+		double[] counts = new double[index.getTotalValues()];
+		Arrays.fill(counts, 1);
+		double[] maxCounts = new double[amountOfIssues];
+		Arrays.fill(maxCounts, 1);
+		return new Snapshot(0, weights, counts, maxCounts, offers.view(), this);
+	}
+
+	/**
+	 * @return The current snapshot of the model. Evaluating a number of bids against one
+	 * snapshot gives consistent results, whatever updates happen in the meantime.
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return The number of offers which the update policy did not apply yet.
+	 */
+	int getPendingCount() {
+		return pendingBids.size();
+	}
+
+	/**
+	 * Builds the utility space of the current snapshot, when it is asked for. The model itself
+	 * does not need it, so the copy of the utility space is only paid for by its users.
+	 */
+	@Override
+	public synchronized AdditiveUtilitySpace getOpponentUtilitySpace() {
+		Snapshot current = snapshot;
+		if (opponentUtilitySpace == null || spaceEpoch != current.epoch) {
+			AdditiveUtilitySpace space = (AdditiveUtilitySpace) negotiationSession.getUtilitySpace().copy();
+			for (Entry<Objective, Evaluator> e : space.getEvaluators()) {
+				space.unlock(e.getKey());
+				int position = index.getPosition(e.getKey().getNumber());
+				e.getValue().setWeight(current.weights[position]);
+				try {
+					List<ValueDiscrete> values = ((IssueDiscrete) e.getKey()).getValues();
+					for (int v = 0; v < values.size(); v++) {
+						((EvaluatorDiscrete) e.getValue()).setEvaluation(values.get(v),
+								current.getEvaluation(position, index.getOffset(position) + v));
+					}
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+			}
+			opponentUtilitySpace = space;
+			spaceEpoch = current.epoch;
+		}
+		return opponentUtilitySpace;
+	}
 
-		initializeModel();
+	@Override
+	public double getWeight(Issue issue) {
+		return snapshot.getWeight(index.getPosition(issue.getNumber()));
 	}
 
 	@Override
 	public void updateModel(Bid opponentBid, double time) {
-		// Store the opponent bid in a list of offers
-		offers.add(opponentBid);
-		if (negotiationSession.getOpponentBidHistory().size() < 2) {
+		if (context == null) {
+			context = Group4_SessionContext.find(negotiationSession);
+		}
+		Group4_UpdatePolicy policy = context == null ? null : context.getUpdatePolicy();
+		if (policy == null) {
+			Draft draft = new Draft(snapshot);
+			applyUpdate(draft, opponentBid, time);
+			publish(draft);
+		} else {
+			pendingBids.add(opponentBid);
+			pendingTimes.add(time);
+			double error = 1 - snapshot.getFrequencyUtility(index.encode(opponentBid));
+			if (policy.offer(error, pendingBids.size())) {
+				applyPending(policy);
+			}
+		}
+		if (negotiationSession.getOpponentBidHistory().size() >= 2) {
+			determineCooperative(profileDeterminationMoves);
+		}
+	}
+
+	/**
+	 * Applies the queued offers in the order they were received, as far as the policy allows,
+	 * and publishes them as one snapshot.
+	 */
+	private void applyPending(Group4_UpdatePolicy policy) {
+		Draft draft = new Draft(snapshot);
+		int applied = 0;
+		while (applied < pendingBids.size() && policy.canApply(pendingBids.size() - applied)) {
+			long start = Group4_UpdatePolicy.cpuTime();
+			applyUpdate(draft, pendingBids.get(applied), pendingTimes.get(applied));
+			policy.applied(Group4_UpdatePolicy.cpuTime() - start);
+			applied++;
+		}
+		pendingBids.subList(0, applied).clear();
+		pendingTimes.subList(0, applied).clear();
+		policy.batchApplied();
+		publish(draft);
+	}
+
+	/**
+	 * Swaps in the next snapshot, built from the draft and the offers stored now.
+	 */
+	private void publish(Draft draft) {
+		snapshot = new Snapshot(snapshot.epoch + 1, draft.weights, draft.counts, draft.maxCounts, offers.view(),
+				this);
+	}
+
+	private void applyUpdate(Draft draft, Bid opponentBid, double time) {
+		// Store the opponent bid in the offer history
+		BidDetails last = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+		double ownUtility = last != null && last.getBid().equals(opponentBid)
+				? last.getMyUndiscountedUtil()
+				: negotiationSession.getUtilitySpace().getUtility(opponentBid);
+		int[] values = index.encode(opponentBid);
+		offers.add(values, time, ownUtility);
+		// Learn from the previous applied offer instead of the session history, so that queued offers can be replayed
+		int[] prevValues = previousValues;
+		previousValues = values;
+		if (prevValues == null) {
 			return;
 		}
-		int numberOfUnchanged = 0;
-		BidDetails oppBid = negotiationSession.getOpponentBidHistory()
-				.getHistory()
-				.get(negotiationSession.getOpponentBidHistory().size() - 1);
-		BidDetails prevOppBid = negotiationSession.getOpponentBidHistory()
-				.getHistory()
-				.get(negotiationSession.getOpponentBidHistory().size() - 2);
-		HashMap<Integer, Integer> lastDiffSet = determineDifference(prevOppBid, oppBid);
 
 		// Count the number of changes in value
-		for (Integer i : lastDiffSet.keySet()) {
-			if (lastDiffSet.get(i) == 0)
+		int numberOfUnchanged = 0;
+		for (int i = 0; i < amountOfIssues; i++) {
+			if (values[i] == prevValues[i])
 				numberOfUnchanged++;
 		}
 
@@ -117,51 +280,50 @@ public class Group4_OM extends OpponentModel {
 		double maximumWeight = 1D - (amountOfIssues) * goldenValue / totalSum;
 
 		// Re-weighing issues while making sure that the sum remains 1
-		for (Integer i : lastDiffSet.keySet()) {
-			Objective issue = opponentUtilitySpace.getDomain().getObjectivesRoot().getObjective(i);
-			double weight = opponentUtilitySpace.getWeight(i);
-			double newWeight;
-
-			if (lastDiffSet.get(i) == 0 && weight < maximumWeight) {
-				newWeight = (weight + goldenValue) / totalSum;
+		double sum = 0;
+		for (int i = 0; i < amountOfIssues; i++) {
+			double weight = draft.weights[i];
+			if (values[i] == prevValues[i] && weight < maximumWeight) {
+				draft.weights[i] = (weight + goldenValue) / totalSum;
 			} else {
-				newWeight = weight / totalSum;
+				draft.weights[i] = weight / totalSum;
 			}
-			opponentUtilitySpace.setWeight(issue, newWeight);
+			sum += draft.weights[i];
+		}
+		// The utility space kept its weights normalized
+		for (int i = 0; i < amountOfIssues; i++) {
+			draft.weights[i] /= sum;
+		}
+
+		if (decayFactor < 1) {
+			draft.decay(decayFactor);
 		}
 
 		// Then for each issue value that has been offered last time, a constant
 		// value is added to its corresponding ValueDiscrete.
-		try {
-			for (Entry<Objective, Evaluator> e : opponentUtilitySpace.getEvaluators()) {
-				EvaluatorDiscrete value = (EvaluatorDiscrete) e.getValue();
-				IssueDiscrete issue = ((IssueDiscrete) e.getKey());
-				/*
-				 * Add constant learnValueAddition to the current preference of
-				 * the value to make it more important
-				 */
-				ValueDiscrete issuevalue = (ValueDiscrete) oppBid.getBid().getValue(issue.getNumber());
-				Integer eval = value.getEvaluationNotNormalized(issuevalue);
-				value.setEvaluation(issuevalue, (learnValueAddition + eval));
+		for (int i = 0; i < amountOfIssues; i++) {
+			if (values[i] < 0) {
+				continue;
 			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
+			int slot = index.getOffset(i) + values[i];
+			draft.counts[slot] += learnValueAddition;
+			draft.maxCounts[i] = Math.max(draft.maxCounts[i], draft.counts[slot]);
 		}
-		determineCooperative(profileDeterminationMoves);
 	}
 
 	@Override
 	public double getBidEvaluation(Bid bid) {
-		double result = 0;
-		try {
-			// Combine the frequency utility with the time utility
-			double freqUtil = opponentUtilitySpace.getUtility(bid);
-			double issueUtil = getIssueTimeUtility(bid);
-			result = freqUtil * frequencyWeight + issueUtil * timeWeight;
-		} catch (Exception e) {
-			e.printStackTrace();
+		return snapshot.getBidEvaluation(bid);
+	}
+
+	@Override
+	public void cleanUp() {
+		super.cleanUp();
+		pendingBids.clear();
+		pendingTimes.clear();
+		if (negotiationSession != null) {
+			Group4_SessionContext.remove(negotiationSession);
 		}
-		return result;
 	}
 
 	@Override
@@ -176,60 +338,12 @@ public class Group4_OM extends OpponentModel {
 		set.add(new BOAparameter("m", 2.0, "Checks after how many non-conceding opponent moves the modeler should consider the opponent as non-cooperative"));
 		set.add(new BOAparameter("w_frequency", 0.5 , "Weight of the frequency model utility"));
 		set.add(new BOAparameter("w_time", 0.5 , "Weight of time model utility"));
+		set.add(new BOAparameter("history", 0.0 , "Maximum number of stored opponent offers, 0 for no limit"));
+		set.add(new BOAparameter("downsample", 0.0 , "If higher than 0 a full history keeps every second offer instead of dropping the oldest"));
+		set.add(new BOAparameter("decay", 0.0 , "Fraction by which the value counts decay per learned offer, 0 for no decay"));
 		return set;
 	}
 
-	/**
-	 * Init to flat weight and flat evaluation distribution
-	 */
-	private void initializeModel() {
-		double commonWeight = 1D / amountOfIssues;
-
-		for (Entry<Objective, Evaluator> e : opponentUtilitySpace
-				.getEvaluators()) {
-
-			opponentUtilitySpace.unlock(e.getKey());
-			e.getValue().setWeight(commonWeight);
-			try {
-				// Set all value weights to one (they are normalized when
-				// calculating the utility)
-				for (ValueDiscrete vd : ((IssueDiscrete) e.getKey())
-						.getValues())
-					((EvaluatorDiscrete) e.getValue()).setEvaluation(vd, 1);
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
-		}
-	}
-
-	/**
-	 * Determines the difference between bids. For each issue, it is determined
-	 * if the value changed. If this is the case, a 1 is stored in a hashmap for
-	 * that issue, else a 0.
-	 * 
-	 * @param first
-	 *            bid of the opponent
-	 * @param second
-	 *            bid
-	 * @return The difference between bids
-	 */
-	private HashMap<Integer, Integer> determineDifference(BidDetails first,
-			BidDetails second) {
-
-		HashMap<Integer, Integer> diff = new HashMap<Integer, Integer>();
-		try {
-			for (Issue i : opponentUtilitySpace.getDomain().getIssues()) {
-				Value value1 = first.getBid().getValue(i.getNumber());
-				Value value2 = second.getBid().getValue(i.getNumber());
-				diff.put(i.getNumber(), (value1.equals(value2)) ? 0 : 1);
-			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
-		}
-
-		return diff;
-	}
-
 	/**
 	 * Determines is the opponent is playing cooperative based on the amount of repeat offers.
 	 */
@@ -257,45 +371,194 @@ public class Group4_OM extends OpponentModel {
 	public boolean getOpponentCooperative() { return isOpponentCooperative; }
 
 	/**
-	 * Evaluation function to give a time-based utility per issue value.
-	 * However, this sometimes fails, so it can switch to the closest general bid if that happens.
+	 * The epoch is incremented every time a new snapshot is published, so two evaluations
+	 * with the same epoch were made against the same model.
 	 *
-	 * @return Utility of the given bid
+	 * @return The version of the model
 	 */
-	private double getIssueTimeUtility(Bid bid_1) {
-		List<Double> t = new ArrayList<>(Collections.nCopies(amountOfIssues+1, 0.0));
-		double closest_value = -1;
-		double closest_index = 0;
-		if (!offers.isEmpty()) {
-			for (int i = offers.size() - 1; i > 0; i--) {
-				Bid bid_2 = offers.get(i);
-				// Time utility per issue calculation
-				for (Issue j : issues) {
-					Value value1 = bid_1.getValue(j.getNumber());
-					Value value2 = bid_2.getValue(j.getNumber());
-					// As in the report, here "&& t.get(j.getNumber()) == 0.0" could be included
-					// Here the relative position of a bid is stored in the array
-					if (value1.equals(value2)) {
-						t.set(j.getNumber(), 1.0 - i / offers.size());
-					} else if (t.get(j.getNumber()) != 0.0) {
-						t.set(j.getNumber(), 0.0);
+	public long getModelEpoch() { return snapshot.epoch; }
+
+	// Count below which a decayed count is set to zero, before the multiplications get slow on subnormal numbers.
+	private static final double MIN_COUNT = 1e-200;
+
+	// Range of the evaluations of the utility space when the counts decay, as it takes whole numbers.
+	private static final int EVALUATION_RANGE = 1000000;
+
+	/**
+	 * Copies of the arrays of a snapshot, which an update writes into before they are published.
+	 */
+	private static final class Draft {
+		final double[] weights;
+		final double[] counts;
+		final double[] maxCounts;
+
+		Draft(Snapshot from) {
+			weights = from.weights.clone();
+			counts = from.counts.clone();
+			maxCounts = from.maxCounts.clone();
+		}
+
+		/**
+		 * Multiplies every count by the factor. The highest count of an issue stays the highest.
+		 */
+		void decay(double factor) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = counts[i] < MIN_COUNT ? 0 : counts[i] * factor;
+			}
+			for (int i = 0; i < maxCounts.length; i++) {
+				maxCounts[i] *= factor;
+			}
+		}
+	}
+
+	/**
+	 * Immutable version of the model: the issue weights, the value counts of the frequency
+	 * model and a view of the offer history. Its arrays are never written once it is published.
+	 */
+	public static final class Snapshot {
+		private final long epoch;
+		private final double[] weights;
+		private final double[] counts;
+		private final double[] maxCounts;
+		private final Group4_OfferHistory.View offers;
+		private final Group4_DomainIndex index;
+		private final int amountOfIssues;
+		private final double frequencyWeight;
+		private final double timeWeight;
+		// Whether the counts decay, in which case they are not whole numbers
+		private final boolean decayed;
+
+		private Snapshot(long epoch, double[] weights, double[] counts, double[] maxCounts,
+				Group4_OfferHistory.View offers, Group4_OM model) {
+			this.epoch = epoch;
+			this.weights = weights;
+			this.counts = counts;
+			this.maxCounts = maxCounts;
+			this.offers = offers;
+			this.index = model.index;
+			this.amountOfIssues = model.amountOfIssues;
+			this.frequencyWeight = model.frequencyWeight;
+			this.timeWeight = model.timeWeight;
+			this.decayed = model.decayFactor < 1;
+		}
+
+		public long getEpoch() {
+			return epoch;
+		}
+
+		/**
+		 * @return The weight of the issue at the given position of the domain index.
+		 */
+		public double getWeight(int position) {
+			return position < 0 ? 0 : weights[position];
+		}
+
+		/**
+		 * @return The decayed count of the value at the given index of the flat value table.
+		 */
+		double getCount(int value) {
+			return counts[value];
+		}
+
+		/**
+		 * @return The highest decayed count of the values of the issue at the given position.
+		 */
+		double getMaxCount(int position) {
+			return maxCounts[position];
+		}
+
+		/**
+		 * @return The evaluation of a value for the utility space: its count without a decay, and
+		 * otherwise its count relative to the highest count of the issue. The choice is made for
+		 * the whole model, so all values of an issue are on the same scale.
+		 */
+		private int getEvaluation(int position, int value) {
+			if (!decayed) {
+				return (int) counts[value];
+			}
+			return (int) Math.round(EVALUATION_RANGE * counts[value] / maxCounts[position]);
+		}
+
+		Group4_OfferHistory.View getOffers() {
+			return offers;
+		}
+
+		public double getBidEvaluation(Bid bid) {
+			double result = 0;
+			try {
+				// Combine the frequency utility with the time utility, the flat model gives every bid a utility of 1
+				int[] values = index.encode(bid);
+				double freqUtil = getFrequencyUtility(values);
+				double issueUtil = getIssueTimeUtility(values);
+				result = freqUtil * frequencyWeight + issueUtil * timeWeight;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			return result;
+		}
+
+		/**
+		 * @return The utility of the frequency model, where the evaluation of a value is its count
+		 * divided by the highest count of the issue, as in EvaluatorDiscrete.
+		 */
+		double getFrequencyUtility(int[] values) {
+			double utility = 0;
+			for (int i = 0; i < amountOfIssues; i++) {
+				if (values[i] >= 0) {
+					utility += weights[i] * counts[index.getOffset(i) + values[i]] / maxCounts[i];
+				}
+			}
+			return utility;
+		}
+
+		/**
+		 * Evaluation function to give a time-based utility per issue value.
+		 * However, this sometimes fails, so it can switch to the closest general bid if that happens.
+		 *
+		 * @return Utility of the given bid
+		 */
+		private double getIssueTimeUtility(int[] values) {
+			// The average has always been taken over one entry more than the number of issues
+			double[] t = new double[amountOfIssues + 1];
+			double closest_value = -1;
+			double closest_index = 0;
+			int size = offers.size();
+			if (size > 0) {
+				// Iterate backwards over the stored offers, column by column
+				for (int i = size - 1; i > 0; i--) {
+					int distance = 0;
+					// Time utility per issue calculation
+					for (int j = 0; j < amountOfIssues; j++) {
+						// As in the report, here "&& t[j] == 0.0" could be included
+						// Here the relative position of a bid is stored in the array
+						if (values[j] == offers.getValue(i, j)) {
+							t[j] = 1.0 - i / size;
+						} else {
+							distance++;
+							if (t[j] != 0.0) {
+								t[j] = 0.0;
+							}
+						}
+					}
+					// Time utility per bid calculation, the closest bid has the fewest different values
+					if (distance < closest_value || closest_value == -1) {
+						closest_index = i;
+						closest_value = distance;
 					}
 				}
-				// Time utility per bid calculation
-				double distance = bid_1.getDistance(bid_2);
-				if (distance < closest_value || closest_value == -1) {
-					closest_index = i;
-					closest_value = distance;
+				// Average the stored relative positions
+				double average = 0;
+				for (double position : t) {
+					average += position;
 				}
+				average /= t.length;
+				// Fallback calculation to general bid utility
+				if (average == 0.0) {
+					return 1.0 - closest_index / size;
+				}
+				return average;
 			}
-			// Average the stored relative positions
-			OptionalDouble average = t.stream().mapToDouble(a->a).average();
-			// Fallback calculation to general bid utility
-			if (average.isPresent() && average.getAsDouble() == 0.0) {
-				return 1.0 - closest_index / offers.size();
-			}
-			return average.isPresent() ? average.getAsDouble(): 1.0;
+			return 1.0;
 		}
-		return 1.0;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,480 @@
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Accuracy versus cost benchmark of opponent models.
+ *
+ * Our agent plays synthetic opponents whose profile is known, and the offers of every session are
+ * replayed to a fresh instance of every model. After each round the benchmark measures how well the
+ * model ranks a fixed sample of bids, as the Kendall tau between the estimated and the true utility
+ * of the opponent, together with the time of the update and of the evaluations. At the end of the
+ * session it measures the heap the model retains.
+ *
+ * A model is given as a class name followed by its parameters, for example "Group4_OM;l=0.1".
+ *
+ * Usage: java Group4_OMBenchmark [--model spec]... [--opponent spec]... [--sessions 5] [--rounds 500]
+ *        [--issues 6] [--values 5] [--samples 200] [--every 10] [--seed 0] [--cost time|update|evaluation|memory]
+ *        [--out-dir benchmark]
+ *
+ * Writes rounds.csv with the accuracy per round, summary.csv with the accuracy and the costs of every
+ * model and opponent, and pareto.svg with the accuracy against the cost of every model, where the
+ * models on the Pareto front are connected.
+ */
+public class Group4_OMBenchmark {
+
+    private static final String[] DEFAULT_MODELS = {
+            "Group4_OM",
+            "Group4_OM;l=0.1",
+            "Group4_OM;l=0.4",
+            "Group4_OM;w_time=0;w_frequency=1",
+            "Group4_OM;w_time=1;w_frequency=0",
+            "Group4_OM;history=200",
+            "bilateralexamples.boacomponents.Group4_OM",
+            "Group4_EnsembleOM"
+    };
+
+    private static final String[] DEFAULT_OPPONENTS = {
+            "bs=Group4_TimeDependentOpponent;bs.e=0.2;as=Group4_StandInAcceptance;om=none",
+            "bs=Group4_TimeDependentOpponent;bs.e=2;as=Group4_StandInAcceptance;om=none"
+    };
+
+    /** Our agent, without a model so the offers of the opponent do not depend on the benchmarked model */
+    private static final String AGENT = "bs=Group4_BS;as=Group4_AS;om=none";
+
+    /** Measurements of one model against one opponent, summed over the sessions */
+    static class Measurement {
+        final String model;
+        final String opponent;
+        // Sum and number of the accuracies per measured round
+        final Map<Integer, double[]> rounds = new LinkedHashMap<>();
+        double accuracy;
+        long accuracies;
+        long updateNanos;
+        long updates;
+        long evaluationNanos;
+        long evaluations;
+        final List<Long> retained = new ArrayList<>();
+
+        Measurement(String model, String opponent) {
+            this.model = model;
+            this.opponent = opponent;
+        }
+
+        void addAccuracy(int round, double tau) {
+            if (Double.isNaN(tau)) {
+                return;
+            }
+            double[] sum = rounds.computeIfAbsent(round, r -> new double[2]);
+            sum[0] += tau;
+            sum[1]++;
+            accuracy += tau;
+            accuracies++;
+        }
+
+        double getAccuracy() {
+            return accuracies == 0 ? Double.NaN : accuracy / accuracies;
+        }
+
+        double getUpdateNanos() {
+            return updates == 0 ? 0 : (double) updateNanos / updates;
+        }
+
+        double getEvaluationNanos() {
+            return evaluations == 0 ? 0 : (double) evaluationNanos / evaluations;
+        }
+
+        /**
+         * @return The median of the retained bytes of the sessions.
+         */
+        long getRetainedBytes() {
+            if (retained.isEmpty()) {
+                return 0;
+            }
+            Long[] sorted = retained.toArray(new Long[0]);
+            Arrays.sort(sorted);
+            return sorted[sorted.length / 2];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> models = new ArrayList<>();
+        List<String> opponents = new ArrayList<>();
+        int sessions = 5;
+        int rounds = 500;
+        int issues = 6;
+        int values = 5;
+        int samples = 200;
+        int every = 10;
+        long seed = 0;
+        String cost = "time";
+        File outDir = new File("benchmark");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model":
+                    models.add(args[++i]);
+                    break;
+                case "--opponent":
+                    opponents.add(args[++i]);
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--issues":
+                    issues = Integer.parseInt(args[++i]);
+                    break;
+                case "--values":
+                    values = Integer.parseInt(args[++i]);
+                    break;
+                case "--samples":
+                    samples = Integer.parseInt(args[++i]);
+                    break;
+                case "--every":
+                    every = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--cost":
+                    cost = args[++i];
+                    break;
+                case "--out-dir":
+                    outDir = new File(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (models.isEmpty()) {
+            models.addAll(Arrays.asList(DEFAULT_MODELS));
+        }
+        if (opponents.isEmpty()) {
+            opponents.addAll(Arrays.asList(DEFAULT_OPPONENTS));
+        }
+        if (!Arrays.asList("time", "update", "evaluation", "memory").contains(cost)) {
+            System.err.println("Unknown cost " + cost);
+            System.exit(2);
+        }
+
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, seed);
+        AdditiveUtilitySpace own = domain.createProfile(0);
+        AdditiveUtilitySpace truth = domain.createProfile(1);
+        Random random = new Random(seed);
+        Bid[] sample = new Bid[samples];
+        double[] trueUtilities = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            sample[i] = domain.getDomain().getRandomBid(random);
+            trueUtilities[i] = truth.getUtility(sample[i]);
+        }
+
+        Group4_AgentConfig agent = Group4_AgentConfig.parse(AGENT);
+        List<Measurement> measurements = new ArrayList<>();
+        for (String opponent : opponents) {
+            Group4_AgentConfig opponentConfig = Group4_AgentConfig.parse(opponent);
+            Map<String, Measurement> byModel = new LinkedHashMap<>();
+            for (String model : models) {
+                byModel.put(model, new Measurement(model, opponent));
+            }
+            for (int s = 0; s < sessions; s++) {
+                List<BidDetails> offers = Group4_SessionRunner.offersOfB(agent, opponentConfig, domain, rounds, seed + s);
+                for (String model : models) {
+                    replay(model, offers, own, rounds, seed + s, sample, trueUtilities, every, byModel.get(model));
+                }
+            }
+            for (Measurement measurement : byModel.values()) {
+                measurements.add(measurement);
+                System.out.println(String.format(Locale.ROOT, "%s vs %s: tau %.3f, update %.0f ns, evaluation %.0f ns, retained %d bytes",
+                        measurement.model, opponent, measurement.getAccuracy(), measurement.getUpdateNanos(),
+                        measurement.getEvaluationNanos(), measurement.getRetainedBytes()));
+            }
+        }
+
+        outDir.mkdirs();
+        writeRounds(new File(outDir, "rounds.csv"), measurements);
+        List<Measurement> overall = overall(models, measurements);
+        boolean[] front = paretoFront(overall, cost);
+        writeSummary(new File(outDir, "summary.csv"), measurements, overall, front, cost);
+        writePlot(new File(outDir, "pareto.svg"), overall, front, cost);
+    }
+
+    /**
+     * Feeds the offers of one session to a fresh instance of the model, and adds its accuracy and costs.
+     */
+    private static void replay(String spec, List<BidDetails> offers, AdditiveUtilitySpace own, int rounds, long seed,
+                               Bid[] sample, double[] trueUtilities, int every, Measurement measurement) throws Exception {
+        NegotiationSession session = Group4_SyntheticDomain.createSession(own, rounds);
+        OpponentModel model = create(spec, session, seed);
+        double[] estimated = new double[sample.length];
+        for (int round = 0; round < offers.size(); round++) {
+            BidDetails offer = offers.get(round);
+            Group4_SyntheticDomain.receive(session, offer.getBid(), offer.getTime());
+            long start = System.nanoTime();
+            model.updateModel(offer.getBid(), offer.getTime());
+            measurement.updateNanos += System.nanoTime() - start;
+            measurement.updates++;
+
+            if ((round + 1) % every == 0 || round == offers.size() - 1) {
+                start = System.nanoTime();
+                for (int i = 0; i < sample.length; i++) {
+                    estimated[i] = model.getBidEvaluation(sample[i]);
+                }
+                measurement.evaluationNanos += System.nanoTime() - start;
+                measurement.evaluations += sample.length;
+                measurement.addAccuracy(round + 1, kendallTau(estimated, trueUtilities));
+            }
+        }
+        // The session keeps the offers either way, so only the model makes the difference
+        long withModel = usedHeap();
+        model.cleanUp();
+        model = null;
+        measurement.retained.add(Math.max(0, withModel - usedHeap()));
+        Group4_SessionContext.remove(session);
+    }
+
+    private static OpponentModel create(String spec, NegotiationSession session, long seed) throws Exception {
+        String[] entries = spec.split(";");
+        Map<String, Double> parameters = new HashMap<>();
+        for (int i = 1; i < entries.length; i++) {
+            String[] keyValue = entries[i].split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Parameter without value in model: " + spec);
+            }
+            parameters.put(keyValue[0].trim(), Double.parseDouble(keyValue[1].trim()));
+        }
+        // A seeded session makes the models reproducible, and the ensemble has to apply every update
+        // within updateModel, or only the submit of its background members would be timed
+        Group4_SessionContext.bind(session, seed, Group4_Clock.simulated(session));
+        OpponentModel model = (OpponentModel) Class.forName(entries[0].trim()).getDeclaredConstructor().newInstance();
+        if (model instanceof Group4_EnsembleOM) {
+            parameters.put("await_all", 1.0);
+        }
+        model.init(session, parameters);
+        return model;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return The Kendall tau-b between the two rankings, or NaN if either ranks all bids the same.
+     */
+    static double kendallTau(double[] x, double[] y) {
+        long concordant = 0;
+        long discordant = 0;
+        long tiesX = 0;
+        long tiesY = 0;
+        for (int i = 0; i < x.length; i++) {
+            for (int j = i + 1; j < x.length; j++) {
+                int dx = Double.compare(x[i], x[j]);
+                int dy = Double.compare(y[i], y[j]);
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                if (dx == 0) {
+                    tiesX++;
+                } else if (dy == 0) {
+                    tiesY++;
+                } else if (dx == dy) {
+                    concordant++;
+                } else {
+                    discordant++;
+                }
+            }
+        }
+        double denominator = Math.sqrt((double) (concordant + discordant + tiesX) * (concordant + discordant + tiesY));
+        return denominator == 0 ? Double.NaN : (concordant - discordant) / denominator;
+    }
+
+    /**
+     * @return The measurements of every model over all opponents.
+     */
+    private static List<Measurement> overall(List<String> models, List<Measurement> measurements) {
+        List<Measurement> overall = new ArrayList<>();
+        for (String model : models) {
+            Measurement sum = new Measurement(model, "all");
+            for (Measurement measurement : measurements) {
+                if (measurement.model.equals(model)) {
+                    sum.accuracy += measurement.accuracy;
+                    sum.accuracies += measurement.accuracies;
+                    sum.updateNanos += measurement.updateNanos;
+                    sum.updates += measurement.updates;
+                    sum.evaluationNanos += measurement.evaluationNanos;
+                    sum.evaluations += measurement.evaluations;
+                    sum.retained.addAll(measurement.retained);
+                }
+            }
+            overall.add(sum);
+        }
+        return overall;
+    }
+
+    private static double cost(Measurement measurement, String cost) {
+        switch (cost) {
+            case "update":
+                return measurement.getUpdateNanos();
+            case "evaluation":
+                return measurement.getEvaluationNanos();
+            case "memory":
+                return measurement.getRetainedBytes();
+            default:
+                // One update and one evaluation, the cost of a round of an agent that evaluates a single bid
+                return measurement.getUpdateNanos() + measurement.getEvaluationNanos();
+        }
+    }
+
+    private static String costLabel(String cost) {
+        return cost.equals("memory") ? "retained bytes" : cost + " (ns)";
+    }
+
+    /**
+     * @return For every measurement whether no other measurement is at least as accurate and at most as costly.
+     */
+    private static boolean[] paretoFront(List<Measurement> measurements, String cost) {
+        boolean[] front = new boolean[measurements.size()];
+        for (int i = 0; i < front.length; i++) {
+            Measurement a = measurements.get(i);
+            front[i] = !Double.isNaN(a.getAccuracy());
+            for (int j = 0; j < front.length && front[i]; j++) {
+                Measurement b = measurements.get(j);
+                if (i != j && b.getAccuracy() >= a.getAccuracy() && cost(b, cost) <= cost(a, cost)
+                        && (b.getAccuracy() > a.getAccuracy() || cost(b, cost) < cost(a, cost))) {
+                    front[i] = false;
+                }
+            }
+        }
+        return front;
+    }
+
+    private static void writeRounds(File file, List<Measurement> measurements) throws Exception {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("model,opponent,round,tau");
+            for (Measurement measurement : measurements) {
+                for (Map.Entry<Integer, double[]> round : measurement.rounds.entrySet()) {
+                    out.println(String.format(Locale.ROOT, "%s,%s,%d,%.4f", csv(measurement.model),
+                            csv(measurement.opponent), round.getKey(), round.getValue()[0] / round.getValue()[1]));
+                }
+            }
+        }
+    }
+
+    private static void writeSummary(File file, List<Measurement> measurements, List<Measurement> overall,
+                                     boolean[] front, String cost) throws Exception {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("model,opponent,tau,update_ns,evaluation_ns,retained_bytes,pareto");
+            for (Measurement measurement : measurements) {
+                out.println(summaryLine(measurement, ""));
+            }
+            for (int i = 0; i < overall.size(); i++) {
+                out.println(summaryLine(overall.get(i), String.valueOf(front[i])));
+            }
+        }
+    }
+
+    private static String summaryLine(Measurement measurement, String pareto) {
+        return String.format(Locale.ROOT, "%s,%s,%.4f,%.1f,%.1f,%d,%s", csv(measurement.model), csv(measurement.opponent),
+                measurement.getAccuracy(), measurement.getUpdateNanos(), measurement.getEvaluationNanos(),
+                measurement.getRetainedBytes(), pareto);
+    }
+
+    private static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Plots the accuracy against the cost on a logarithmic axis, with the Pareto front connected.
+     */
+    private static void writePlot(File file, List<Measurement> measurements, boolean[] front, String cost) throws Exception {
+        int width = 800;
+        int height = 500;
+        int margin = 70;
+        double minCost = Double.MAX_VALUE;
+        double maxCost = 0;
+        for (Measurement measurement : measurements) {
+            double c = Math.max(1, cost(measurement, cost));
+            minCost = Math.min(minCost, c);
+            maxCost = Math.max(maxCost, c);
+        }
+        double lower = Math.floor(Math.log10(minCost));
+        double upper = Math.max(lower + 1, Math.ceil(Math.log10(maxCost)));
+
+        List<double[]> points = new ArrayList<>();
+        for (Measurement measurement : measurements) {
+            double x = margin + (Math.log10(Math.max(1, cost(measurement, cost))) - lower) / (upper - lower) * (width - 2 * margin);
+            double accuracy = Double.isNaN(measurement.getAccuracy()) ? -1 : measurement.getAccuracy();
+            // Kendall tau lies between -1 and 1
+            double y = height - margin - (accuracy + 1) / 2 * (height - 2 * margin);
+            points.add(new double[] {x, y});
+        }
+
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println(String.format(Locale.ROOT, "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"sans-serif\" font-size=\"11\">", width, height));
+            out.println(String.format(Locale.ROOT, "<rect width=\"%d\" height=\"%d\" fill=\"white\"/>", width, height));
+            out.println(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>",
+                    margin, height - margin, width - margin, height - margin));
+            out.println(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>",
+                    margin, margin, margin, height - margin));
+            for (int decade = (int) lower; decade <= upper; decade++) {
+                double x = margin + (decade - lower) / (upper - lower) * (width - 2 * margin);
+                out.println(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">1e%d</text>",
+                        x, height - margin + 15, decade));
+            }
+            for (int tick = -2; tick <= 2; tick++) {
+                double y = height - margin - (tick / 2.0 + 1) / 2 * (height - 2 * margin);
+                out.println(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%.1f</text>",
+                        margin - 5, y + 4, tick / 2.0));
+            }
+            out.println(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">%s</text>",
+                    width / 2, height - 20, costLabel(cost)));
+            out.println(String.format(Locale.ROOT, "<text x=\"20\" y=\"%d\" text-anchor=\"middle\" transform=\"rotate(-90 20 %d)\">Kendall tau</text>",
+                    height / 2, height / 2));
+
+            // The front, in order of increasing cost
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < front.length; i++) {
+                if (front[i]) {
+                    order.add(i);
+                }
+            }
+            order.sort((a, b) -> Double.compare(points.get(a)[0], points.get(b)[0]));
+            StringBuilder line = new StringBuilder();
+            for (int i : order) {
+                line.append(String.format(Locale.ROOT, "%.1f,%.1f ", points.get(i)[0], points.get(i)[1]));
+            }
+            out.println("<polyline fill=\"none\" stroke=\"steelblue\" stroke-width=\"2\" points=\"" + line.toString().trim() + "\"/>");
+            for (int i = 0; i < measurements.size(); i++) {
+                double[] point = points.get(i);
+                out.println(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"4\" fill=\"%s\"/>",
+                        point[0], point[1], front[i] ? "steelblue" : "gray"));
+                out.println(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%.1f\">%s</text>",
+                        point[0] + 6, point[1] - 6, escape(measurements.get(i).model)));
+            }
+            out.println("</svg>");
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
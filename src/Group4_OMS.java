@@ -1,9 +1,13 @@
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
 
+import genius.core.Bid;
 import genius.core.bidding.BidDetails;
 import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
@@ -24,6 +28,11 @@ public class Group4_OMS extends OMStrategy {
 	 */
 	double updateThreshold = 1.1;
 
+	/** Random stream of this component, seeded in the deterministic mode */
+	private SplittableRandom random;
+
+	private Group4_SessionContext context;
+
 
 	/**
 	 * Initializes the opponent model strategy. If a value for the parameter t
@@ -41,6 +50,9 @@ public class Group4_OMS extends OMStrategy {
 	@Override
 	public void init(NegotiationSession negotiationSession, OpponentModel model, Map<String, Double> parameters) {
 		super.init(negotiationSession, model, parameters);
+		context = Group4_SessionContext.of(negotiationSession, parameters);
+		random = context.random("Group4_OMS");
+		context.setUpdatePolicy(Group4_UpdatePolicy.of(parameters, context));
 		if (parameters.get("t") != null) {
 			updateThreshold = parameters.get("t").doubleValue();
 		} else {
@@ -64,18 +76,12 @@ public class Group4_OMS extends OMStrategy {
 			return allBids.get(0);
 		}
 
-		// Make a list with good bids, which will contain eventually the bids with the highest utility for the own agent.
+		// Make a list with good bids, the bids with the highest utility for the own agent, from low to high.
+		// Sorting a copy keeps this O(n log n), inserting into a sorted array one by one took O(n^2).
 		int goodBidsSize = (allBids.size() / 2) + 1;
-		BidDetails[] goodBids = initializeGoodBids(goodBidsSize, allBids.get(0));
-
-		for (BidDetails bid : allBids) {
-			double utilityAgent = bid.getMyUndiscountedUtil();
-
-			if(goodBids[0] == null || utilityAgent > goodBids[0].getMyUndiscountedUtil()) {
-				goodBids[0] = bid;
-				sortGoodBids(goodBids);
-			}
-		}
+		BidDetails[] sorted = allBids.toArray(new BidDetails[0]);
+		Arrays.sort(sorted, Comparator.comparingDouble(BidDetails::getMyUndiscountedUtil));
+		BidDetails[] goodBids = Arrays.copyOfRange(sorted, sorted.length - goodBidsSize, sorted.length);
 		
 		// Check that not all bids are assigned at utility of 0
 		// to ensure that the opponent model works. If it works, find the 
@@ -83,9 +89,10 @@ public class Group4_OMS extends OMStrategy {
 		boolean allWereZero = true;
 		double bestUtil = -1;
 		BidDetails bestBid = goodBids[0];
+		ToDoubleFunction<Bid> evaluation = evaluation();
 
 		for (BidDetails bid : goodBids) {
-			double utilityOpponent = model.getBidEvaluation(bid.getBid());
+			double utilityOpponent = evaluation.applyAsDouble(bid.getBid());
 			if (utilityOpponent > 0.0001) {
 				allWereZero = false;
 			}
@@ -96,12 +103,22 @@ public class Group4_OMS extends OMStrategy {
 		}
 		// 4. The opponent model did not work, therefore, offer a random bid.
 		if (allWereZero) {
-			Random r = new Random();
-			return allBids.get(r.nextInt(allBids.size()));
+			return allBids.get(random.nextInt(allBids.size()));
 		}
 		return bestBid;
 	}
 
+	/**
+	 * @return The evaluation of the opponent model. For Group4_OM all bids are scored
+	 * against the same snapshot, so an update on another thread cannot mix two versions.
+	 */
+	private ToDoubleFunction<Bid> evaluation() {
+		if (model instanceof Group4_OM) {
+			return ((Group4_OM) model).getSnapshot()::getBidEvaluation;
+		}
+		return model::getBidEvaluation;
+	}
+
 	/**
 	 * The opponent model may be updated, unless the time is higher than a given
 	 * constant.
@@ -110,13 +127,15 @@ public class Group4_OMS extends OMStrategy {
 	 */
 	@Override
 	public boolean canUpdateOM() {
-		return negotiationSession.getTime() < updateThreshold;
+		return context.getTime() < updateThreshold;
 	}
 
 	@Override
 	public Set<BOAparameter> getParameterSpec() {
 		Set<BOAparameter> set = new HashSet<BOAparameter>();
 		set.add(new BOAparameter("t", 1.1 , "Time after which the OM should not be updated"));
+		set.add(new BOAparameter("seed", -1.0 , "Master seed of the deterministic mode, off if negative"));
+		Group4_UpdatePolicy.addParameters(set);
 		return set;
 	}
 
@@ -124,38 +143,4 @@ public class Group4_OMS extends OMStrategy {
 	public String getName() {
 		return "Group4 - Opponent Model Strategy";
 	}
-
-	/**
-	 * This initializes the array of good bids, where every bid has an utility of -1.
-	 * @param size The length of the array of good bids.
-	 * @param firstBid This is the first bid in the array allBids, which is used to initialize.
-	 * @return returns the initialized array.
-	 */
-	public BidDetails[] initializeGoodBids(int size, BidDetails firstBid) {
-		BidDetails[] bids = new BidDetails[size];
-		firstBid.setMyUndiscountedUtil(-1);
-		for (BidDetails bid : bids) {
-			bid = firstBid;
-		}
-		return bids;
-	}
-
-	/**
-	 * This sorts the array of good bids, from low to high.
-	 * By doing this, it can easily be checked if a new bid should be placed in this array.
-	 * @param goodBids The array that contains all good bids that should be considered for the opponent's utility.
-	 */
-	public void sortGoodBids(BidDetails[] goodBids) {
-		BidDetails bidZero = goodBids[0];
-		double utilityBidZero = bidZero.getMyUndiscountedUtil();
-		for (int i = 1; i < goodBids.length; i++) {
-			if(goodBids[i] == null || utilityBidZero > goodBids[i].getMyUndiscountedUtil()) {
-				goodBids[i-1] = goodBids[i];
-				goodBids[i] = bidZero;
-			}
-			else {
-				break;
-			}
-		}
-	}
 }
@@ -4,9 +4,11 @@ import java.util.List;
 
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
 
+import genius.core.Bid;
 import genius.core.bidding.BidDetails;
 import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
@@ -29,6 +31,11 @@ public class Group4_OMS_Other extends OMStrategy {
 	 */
 	double updateThreshold = 1.1;
 
+	/** Random stream of this component, seeded in the deterministic mode */
+	private SplittableRandom random;
+
+	private Group4_SessionContext context;
+
 	private double ownWeight;
 	private double opponentWeight;
 
@@ -48,6 +55,9 @@ public class Group4_OMS_Other extends OMStrategy {
 	@Override
 	public void init(NegotiationSession negotiationSession, OpponentModel model, Map<String, Double> parameters) {
 		super.init(negotiationSession, model, parameters);
+		context = Group4_SessionContext.of(negotiationSession, parameters);
+		random = context.random("Group4_OMS_Other");
+		context.setUpdatePolicy(Group4_UpdatePolicy.of(parameters, context));
 		if (parameters.get("t") != null) {
 			updateThreshold = parameters.get("t").doubleValue();
 		} else {
@@ -90,8 +100,9 @@ public class Group4_OMS_Other extends OMStrategy {
 
 		System.out.println("the first bid is " + bestBid);
 		// 3. Determine the best bid on the basis of the decision metric
+		ToDoubleFunction<Bid> evaluation = evaluation();
 		for (BidDetails bid : allBids) {
-			double utilityOpponent = model.getBidEvaluation(bid.getBid());
+			double utilityOpponent = evaluation.applyAsDouble(bid.getBid());
 			if (utilityOpponent > 0.0001) {
 				allWereZero = false;
 			}
@@ -104,12 +115,22 @@ public class Group4_OMS_Other extends OMStrategy {
 		}
 		// 4. The opponent model did not work, therefore, offer a random bid.
 		if (allWereZero) {
-			Random r = new Random();
-			return allBids.get(r.nextInt(allBids.size()));
+			return allBids.get(random.nextInt(allBids.size()));
 		}
 		return bestBid;
 	}
 
+	/**
+	 * @return The evaluation of the opponent model. For Group4_OM all bids are scored
+	 * against the same snapshot, so an update on another thread cannot mix two versions.
+	 */
+	private ToDoubleFunction<Bid> evaluation() {
+		if (model instanceof Group4_OM) {
+			return ((Group4_OM) model).getSnapshot()::getBidEvaluation;
+		}
+		return model::getBidEvaluation;
+	}
+
 	/**
 	 * The opponent model may be updated, unless the time is higher than a given
 	 * constant.
@@ -118,7 +139,7 @@ public class Group4_OMS_Other extends OMStrategy {
 	 */
 	@Override
 	public boolean canUpdateOM() {
-		return negotiationSession.getTime() < updateThreshold;
+		return context.getTime() < updateThreshold;
 	}
 
 	@Override
@@ -127,6 +148,8 @@ public class Group4_OMS_Other extends OMStrategy {
 		set.add(new BOAparameter("t", 1.1 , "Time after which the OM should not be updated"));
 		set.add(new BOAparameter("ownWeight", 0.7 , "Weight of the agent's own utility"));
 		set.add(new BOAparameter("opponentWeight", 0.3 , "Weight of the opponent's utility"));
+		set.add(new BOAparameter("seed", -1.0 , "Master seed of the deterministic mode, off if negative"));
+		Group4_UpdatePolicy.addParameters(set);
 		return set;
 	}
 
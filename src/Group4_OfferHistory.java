@@ -0,0 +1,250 @@
+/**
+ * Bounded columnar store of opponent offers.
+ *
+ * Every offer is stored as the value index of every issue (see Group4_DomainIndex), its
+ * time and our own utility, in primitive columns. The columns are split into chunks of a
+ * fixed number of rows, so the store can grow and drop old offers without copying the
+ * other offers. A stored offer costs two bytes per issue and eight bytes for time and
+ * utility, where a Bid with its value map costs in the order of fifty bytes per issue.
+ *
+ * When the capacity is reached, either the oldest offer is dropped (RING), or every second
+ * offer is dropped and from then on only every second offer is stored (DOWNSAMPLE), so that
+ * the store keeps covering the whole negotiation at a lower resolution.
+ *
+ * Row 0 is the oldest stored offer and row size() - 1 the newest.
+ *
+ * A stored row is never written again, and the chunk array is never changed in place below
+ * its end (dropped chunks stay in it until the array is reallocated). So a View, which keeps
+ * the chunk array, the first row and the size, stays valid and consistent while the store
+ * grows, without copying. There must be a single writer, views can be read on any thread
+ * once they are published safely, for example through a volatile field.
+ */
+public class Group4_OfferHistory {
+
+	/** What to do when the capacity is reached */
+	public enum Policy { RING, DOWNSAMPLE }
+
+	/** Number of rows per chunk */
+	static final int CHUNK_SIZE = 256;
+
+	private final int issues;
+	private final int capacity;
+	private final Policy policy;
+
+	private Chunk[] chunks;
+	// Index of the chunk with the oldest stored offer, and the end of the used chunks.
+	private int firstChunk;
+	private int chunkCount;
+	// Row of the first chunk that is the oldest stored offer.
+	private int firstRow;
+	private int size;
+
+	// Only every stride-th offer is stored when downsampling.
+	private int stride;
+	private long added;
+
+	/**
+	 * @param issues the number of issues of the domain.
+	 * @param capacity the maximum number of stored offers.
+	 * @param policy what to do when the capacity is reached.
+	 */
+	public Group4_OfferHistory(int issues, int capacity, Policy policy) {
+		this.issues = issues;
+		this.capacity = Math.max(capacity, 2);
+		this.policy = policy;
+		this.chunks = new Chunk[4];
+		this.stride = 1;
+	}
+
+	/**
+	 * Stores an offer.
+	 *
+	 * @param values the value index of every issue.
+	 * @param time the time of the offer.
+	 * @param utility our own utility of the offer.
+	 */
+	public void add(int[] values, double time, double utility) {
+		added++;
+		if (policy == Policy.DOWNSAMPLE && (added - 1) % stride != 0) {
+			return;
+		}
+		int row = firstRow + size;
+		if (row == (chunkCount - firstChunk) * CHUNK_SIZE) {
+			if (chunkCount == chunks.length) {
+				// Reallocate without the dropped chunks, views keep the old array
+				Chunk[] grown = new Chunk[Math.max(4, (chunkCount - firstChunk) * 2)];
+				System.arraycopy(chunks, firstChunk, grown, 0, chunkCount - firstChunk);
+				chunks = grown;
+				chunkCount -= firstChunk;
+				firstChunk = 0;
+			}
+			chunks[chunkCount++] = new Chunk(issues);
+		}
+		Chunk chunk = chunks[firstChunk + row / CHUNK_SIZE];
+		int slot = row % CHUNK_SIZE;
+		for (int i = 0; i < issues; i++) {
+			chunk.values[i][slot] = (short) values[i];
+		}
+		chunk.time[slot] = (float) time;
+		chunk.utility[slot] = (float) utility;
+		size++;
+
+		if (size > capacity) {
+			if (policy == Policy.RING) {
+				dropOldest();
+			} else {
+				downsample();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of stored offers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return If no offer is stored.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return The number of offers that were added, including the dropped ones.
+	 */
+	public long getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return The value index of the issue at the given position in the given row.
+	 */
+	public int getValue(int row, int issue) {
+		int r = firstRow + row;
+		return chunks[firstChunk + r / CHUNK_SIZE].values[issue][r % CHUNK_SIZE];
+	}
+
+	/**
+	 * @return The time of the offer in the given row.
+	 */
+	public double getTime(int row) {
+		int r = firstRow + row;
+		return chunks[firstChunk + r / CHUNK_SIZE].time[r % CHUNK_SIZE];
+	}
+
+	/**
+	 * @return Our own utility of the offer in the given row.
+	 */
+	public double getUtility(int row) {
+		int r = firstRow + row;
+		return chunks[firstChunk + r / CHUNK_SIZE].utility[r % CHUNK_SIZE];
+	}
+
+	/**
+	 * @return An immutable view of the offers stored now.
+	 */
+	public View view() {
+		return new View(chunks, firstChunk, firstRow, size);
+	}
+
+	/**
+	 * Drops the oldest offer. Its chunk is released once all of its offers are dropped and
+	 * the chunk array is reallocated.
+	 */
+	private void dropOldest() {
+		firstRow++;
+		size--;
+		if (firstRow == CHUNK_SIZE) {
+			firstChunk++;
+			firstRow = 0;
+		}
+	}
+
+	/**
+	 * Keeps every second offer and halves the rate at which new offers are stored.
+	 */
+	private void downsample() {
+		Chunk[] old = chunks;
+		int oldFirstChunk = firstChunk;
+		int oldFirst = firstRow;
+		int oldSize = size;
+		chunks = new Chunk[old.length];
+		firstChunk = 0;
+		chunkCount = 0;
+		firstRow = 0;
+		size = 0;
+		for (int row = 0; row < oldSize; row += 2) {
+			int r = oldFirst + row;
+			Chunk from = old[oldFirstChunk + r / CHUNK_SIZE];
+			int fromSlot = r % CHUNK_SIZE;
+			if (size == chunkCount * CHUNK_SIZE) {
+				chunks[chunkCount++] = new Chunk(issues);
+			}
+			Chunk to = chunks[size / CHUNK_SIZE];
+			int toSlot = size % CHUNK_SIZE;
+			for (int i = 0; i < issues; i++) {
+				to.values[i][toSlot] = from.values[i][fromSlot];
+			}
+			to.time[toSlot] = from.time[fromSlot];
+			to.utility[toSlot] = from.utility[fromSlot];
+			size++;
+		}
+		stride *= 2;
+	}
+
+	/**
+	 * Immutable view of the offers that were stored when it was made.
+	 */
+	public static final class View {
+		private final Chunk[] chunks;
+		private final int firstChunk;
+		private final int firstRow;
+		private final int size;
+
+		private View(Chunk[] chunks, int firstChunk, int firstRow, int size) {
+			this.chunks = chunks;
+			this.firstChunk = firstChunk;
+			this.firstRow = firstRow;
+			this.size = size;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int getValue(int row, int issue) {
+			int r = firstRow + row;
+			return chunks[firstChunk + r / CHUNK_SIZE].values[issue][r % CHUNK_SIZE];
+		}
+
+		public double getTime(int row) {
+			int r = firstRow + row;
+			return chunks[firstChunk + r / CHUNK_SIZE].time[r % CHUNK_SIZE];
+		}
+
+		public double getUtility(int row) {
+			int r = firstRow + row;
+			return chunks[firstChunk + r / CHUNK_SIZE].utility[r % CHUNK_SIZE];
+		}
+	}
+
+	/**
+	 * Columns of a fixed number of rows.
+	 */
+	private static class Chunk {
+		final short[][] values;
+		final float[] time = new float[CHUNK_SIZE];
+		final float[] utility = new float[CHUNK_SIZE];
+
+		Chunk(int issues) {
+			values = new short[issues][CHUNK_SIZE];
+		}
+	}
+}
@@ -0,0 +1,278 @@
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of opponent models for multilateral sessions. Every opponent agent gets its own
+ * frequency model and behaviour state, and updates are routed by the sender of the bid.
+ *
+ * The issue and value tables are shared through Group4_DomainIndex, so an opponent only
+ * costs a flat array of value counts and a few arrays of the number of issues, instead of a
+ * copy of the utility space. The state of an opponent does not grow with the number of offers.
+ *
+ * The frequency model and the cooperative profile follow Group4_OM. The time model of
+ * Group4_OM needs the offer history and is not kept per opponent.
+ *
+ * BOA only passes the bid to updateModel(Bid, double), so the agent tells the registry who
+ * sent an offer through setSender before the update, as Group4_Party does in receiveMessage.
+ * A harness which knows the sender calls updateModel(AgentID, Bid) instead, as
+ * Group4_SessionRunner does. Bids without a sender are routed to a single default opponent.
+ * A bid is evaluated at the lowest utility over all opponents, as every opponent has to
+ * accept it.
+ *
+ * Default settings: l = 0.2; m = 2.0
+ */
+public class Group4_OpponentRegistry extends OpponentModel {
+
+	// Sender used for bids which are received without a sender.
+	public static final AgentID DEFAULT_OPPONENT = new AgentID("opponent");
+
+	// The learning coefficient, as in Group4_OM.
+	private double learnCoef;
+
+	// Number of non-repeating moves after which the opponent is offensive, as in Group4_OM.
+	private double profileDeterminationMoves;
+
+	private Group4_DomainIndex index;
+	private Map<AgentID, OpponentState> opponents;
+	// Sender of the bids passed to updateModel(Bid, double), null for the default opponent.
+	private volatile AgentID sender;
+
+	@Override
+	public void init(NegotiationSession negotiationSession, Map<String, Double> parameters) {
+		this.negotiationSession = negotiationSession;
+		learnCoef = 0.2;
+		profileDeterminationMoves = 4.0;
+		// Assign parameters to class
+		if (parameters != null) {
+			if (parameters.get("l") != null) {
+				learnCoef = parameters.get("l");
+			}
+			if (parameters.get("m") != null) {
+				profileDeterminationMoves = parameters.get("m");
+			}
+		}
+		index = Group4_DomainIndex.of(negotiationSession.getUtilitySpace().getDomain());
+		opponents = new ConcurrentHashMap<>();
+		sender = null;
+	}
+
+	/**
+	 * Sets the sender of the bids which are passed to updateModel(Bid, double) from now on.
+	 *
+	 * @param sender the opponent that offered the next bid, or null for the default opponent.
+	 */
+	public void setSender(AgentID sender) {
+		this.sender = sender;
+	}
+
+	@Override
+	public void updateModel(Bid opponentBid, double time) {
+		AgentID current = sender;
+		updateModel(current == null ? DEFAULT_OPPONENT : current, opponentBid);
+	}
+
+	/**
+	 * Updates the model of the sender with a bid it offered, the entry point for a harness
+	 * which knows who sent the bid.
+	 *
+	 * @param sender the opponent that offered the bid.
+	 * @param opponentBid the offered bid.
+	 */
+	public void updateModel(AgentID sender, Bid opponentBid) {
+		BidDetails last = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+		double ownUtility = last != null && last.getBid().equals(opponentBid)
+				? last.getMyUndiscountedUtil()
+				: negotiationSession.getUtilitySpace().getUtility(opponentBid);
+		updateModel(sender, opponentBid, ownUtility);
+	}
+
+	/**
+	 * Updates the model of the sender with a bid it offered.
+	 *
+	 * @param sender the opponent that offered the bid.
+	 * @param opponentBid the offered bid.
+	 * @param ownUtility our own utility of the bid, used to detect repeated offers.
+	 */
+	public void updateModel(AgentID sender, Bid opponentBid, double ownUtility) {
+		OpponentState state = opponents.computeIfAbsent(sender, id -> new OpponentState(index));
+		synchronized (state) {
+			state.update(index.encode(opponentBid), ownUtility, learnCoef, profileDeterminationMoves);
+		}
+	}
+
+	/**
+	 * @return The lowest estimated utility of the bid over all opponents, 1.0 if there are no opponents yet.
+	 */
+	@Override
+	public double getBidEvaluation(Bid bid) {
+		if (opponents.isEmpty()) {
+			return 1.0;
+		}
+		int[] values = index.encode(bid);
+		double result = 1.0;
+		for (OpponentState state : opponents.values()) {
+			synchronized (state) {
+				result = Math.min(result, state.evaluate(values));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The estimated utility of the bid for the given opponent, 1.0 if it did not bid yet.
+	 */
+	public double getBidEvaluation(AgentID opponent, Bid bid) {
+		OpponentState state = opponents.get(opponent);
+		if (state == null) {
+			return 1.0;
+		}
+		int[] values = index.encode(bid);
+		synchronized (state) {
+			return state.evaluate(values);
+		}
+	}
+
+	/**
+	 * @return If the given opponent is cooperative, an unknown opponent is cooperative.
+	 */
+	public boolean getOpponentCooperative(AgentID opponent) {
+		OpponentState state = opponents.get(opponent);
+		return state == null || state.cooperative;
+	}
+
+	/**
+	 * @return If all opponents are cooperative.
+	 */
+	public boolean getOpponentCooperative() {
+		for (OpponentState state : opponents.values()) {
+			if (!state.cooperative) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The opponents that have been seen.
+	 */
+	public Set<AgentID> getOpponents() {
+		return Collections.unmodifiableSet(opponents.keySet());
+	}
+
+	/**
+	 * @return The number of bids received from the given opponent.
+	 */
+	public int getOfferCount(AgentID opponent) {
+		OpponentState state = opponents.get(opponent);
+		return state == null ? 0 : state.offers;
+	}
+
+	@Override
+	public String getName() {
+		return "Group4 - Opponent Registry";
+	}
+
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("l", 0.2, "The learning coefficient determines how quickly the issue weights are learned"));
+		set.add(new BOAparameter("m", 2.0, "Checks after how many non-conceding opponent moves the modeler should consider the opponent as non-cooperative"));
+		return set;
+	}
+
+	/**
+	 * Compact model and behaviour state of a single opponent.
+	 */
+	private static class OpponentState {
+		// Issue weights, per issue position.
+		final double[] weights;
+		// Value counts in the flat value table of the domain index, starting at one.
+		final float[] counts;
+		// Highest value count per issue position.
+		final float[] maxCounts;
+		// Offsets of the issues in the flat value table, copied for locality.
+		final int[] offsets;
+		// Last offered bid, as value indices.
+		int[] lastBid;
+		double lastUtility;
+		int offers;
+		// Number of transitions at the end of the history in which the offer was repeated.
+		int repeatRun;
+		boolean cooperative = true;
+
+		OpponentState(Group4_DomainIndex index) {
+			int issues = index.getIssueCount();
+			weights = new double[issues];
+			Arrays.fill(weights, 1D / issues);
+			counts = new float[index.getTotalValues()];
+			Arrays.fill(counts, 1f);
+			maxCounts = new float[issues];
+			Arrays.fill(maxCounts, 1f);
+			offsets = new int[issues];
+			for (int i = 0; i < issues; i++) {
+				offsets[i] = index.getOffset(i);
+			}
+		}
+
+		void update(int[] bid, double utility, double learnCoef, double noMoves) {
+			int issues = weights.length;
+			if (lastBid != null) {
+				// Re-weighing issues while making sure that the sum remains 1, as in Group4_OM
+				double goldenValue = learnCoef / issues;
+				int numberOfUnchanged = 0;
+				for (int i = 0; i < issues; i++) {
+					if (bid[i] == lastBid[i]) {
+						numberOfUnchanged++;
+					}
+				}
+				double totalSum = 1D + goldenValue * numberOfUnchanged;
+				double maximumWeight = 1D - issues * goldenValue / totalSum;
+				for (int i = 0; i < issues; i++) {
+					if (bid[i] == lastBid[i] && weights[i] < maximumWeight) {
+						weights[i] = (weights[i] + goldenValue) / totalSum;
+					} else {
+						weights[i] = weights[i] / totalSum;
+					}
+				}
+
+				// An offer is repeated if the bid or our utility of it did not change
+				boolean repeated = utility == lastUtility || Arrays.equals(bid, lastBid);
+				repeatRun = repeated ? repeatRun + 1 : 0;
+
+				// Each offered value is counted once more, from the second offer on as in Group4_OM
+				for (int i = 0; i < issues; i++) {
+					if (bid[i] >= 0) {
+						int slot = offsets[i] + bid[i];
+						counts[slot] += 1f;
+						maxCounts[i] = Math.max(maxCounts[i], counts[slot]);
+					}
+				}
+			}
+
+			offers++;
+			// Once offensive, always offensive. The last noMoves transitions all have to be repeats.
+			if (cooperative && offers > noMoves && repeatRun < (int) noMoves) {
+				cooperative = false;
+			}
+			lastBid = bid;
+			lastUtility = utility;
+		}
+
+		double evaluate(int[] bid) {
+			double result = 0;
+			for (int i = 0; i < weights.length; i++) {
+				if (bid[i] >= 0) {
+					result += weights[i] * counts[offsets[i] + bid[i]] / maxCounts[i];
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+import java.util.HashMap;
+
+import genius.core.AgentID;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.boaframework.BoaParty;
+
+/**
+ * BOA party of Group4 for multilateral sessions, with a model per opponent.
+ *
+ * BoaParty passes the offers of all opponents to the opponent model without their sender,
+ * so the party tells its Group4_OpponentRegistry who sent an offer before BoaParty updates
+ * the model with it.
+ */
+public class Group4_Party extends BoaParty {
+
+    public Group4_Party() {
+        super(new Group4_AS(), new HashMap<String, Double>(), new Group4_BS(), new HashMap<String, Double>(),
+                new Group4_OpponentRegistry(), new HashMap<String, Double>(), new Group4_OMS(),
+                new HashMap<String, Double>());
+    }
+
+    @Override
+    public void receiveMessage(AgentID sender, Action opponentAction) {
+        if (opponentAction instanceof Offer && opponentModel instanceof Group4_OpponentRegistry) {
+            ((Group4_OpponentRegistry) opponentModel).setSender(sender);
+        }
+        super.receiveMessage(sender, opponentAction);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Group4 - BOA party with a model per opponent";
+    }
+}
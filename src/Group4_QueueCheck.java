@@ -0,0 +1,97 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Check of the work queue of Group4_TournamentRunner, with and without atomic moves.
+ *
+ * Plans a small tournament in a temporary directory and runs it with a worker. Then a finished
+ * shard is put back in pending while its file in done and its results stay, as when a shard is
+ * planned twice or its lease was reclaimed after it finished, and the worker runs again. The
+ * check fails if the worker stops with an error, if the shard is not back in done, if its
+ * results changed, or if the merge does not find every shard done. Also checks that a move
+ * replaces an existing target.
+ *
+ * Usage: java Group4_QueueCheck
+ *
+ * Exits with status 1 if any check failed.
+ */
+public class Group4_QueueCheck {
+
+    public static void main(String[] args) throws Exception {
+        int failures = 0;
+        for (boolean atomic : new boolean[] {true, false}) {
+            Group4_TournamentRunner.atomicMoves = atomic;
+            Path queue = Files.createTempDirectory("group4-queue");
+            try {
+                String failure = check(queue);
+                if (failure != null) {
+                    failures++;
+                    System.err.println((atomic ? "Atomic" : "Non-atomic") + " moves: " + failure);
+                }
+            } finally {
+                Group4_TournamentRunner.atomicMoves = true;
+                delete(queue);
+            }
+        }
+        System.out.println("Queue checked with and without atomic moves, " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return A description of the first check that fails, or null if all checks pass.
+     */
+    static String check(Path queue) throws Exception {
+        Map<String, List<String>> options = Group4_TournamentRunner.parseOptions(new String[] {
+                "plan", "--seeds", "2", "--shard-size", "1", "--rounds", "10"});
+        Group4_TournamentRunner.plan(queue, options);
+        Group4_TournamentRunner.worker(queue, 60000, "check");
+
+        Path done = queue.resolve(Group4_TournamentRunner.DONE);
+        List<Path> finished = Group4_TournamentRunner.list(done);
+        if (finished.size() != 2) {
+            return finished.size() + " shards done instead of 2";
+        }
+        Path shard = finished.get(0);
+        String name = Group4_TournamentRunner.shardName(shard);
+        Path results = queue.resolve(Group4_TournamentRunner.RESULTS).resolve(name + Group4_TournamentRunner.RESULTS_SUFFIX);
+        byte[] before = Files.readAllBytes(results);
+
+        // Run the finished shard again
+        Files.copy(shard, queue.resolve(Group4_TournamentRunner.PENDING).resolve(shard.getFileName()));
+        try {
+            Group4_TournamentRunner.worker(queue, 60000, "check");
+        } catch (Exception e) {
+            return "running a finished shard again failed with " + e;
+        }
+        if (!Files.exists(shard)) {
+            return "shard " + name + " is not in done after running again";
+        }
+        if (!Arrays.equals(before, Files.readAllBytes(results))) {
+            return "results of shard " + name + " changed";
+        }
+        if (!Group4_TournamentRunner.merge(queue, queue.resolve("merged" + Group4_TournamentRunner.RESULTS_SUFFIX))) {
+            return "merge found shards that are not done";
+        }
+
+        // A second copy of the results, as written by a second worker, replaces the first
+        Path copy = queue.resolve(name + ".copy");
+        Files.write(copy, before);
+        Files.write(results, new byte[0]);
+        Group4_TournamentRunner.move(copy, results);
+        if (!Arrays.equals(before, Files.readAllBytes(results)) || Files.exists(copy)) {
+            return "moving onto existing results did not replace them";
+        }
+        return null;
+    }
+
+    private static void delete(Path directory) throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
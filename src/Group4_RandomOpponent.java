@@ -0,0 +1,39 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Random stand-in opponent, which offers uniformly random bids with an own utility of at
+ * least minUtility.
+ *
+ * Default settings: minUtility = 0
+ */
+public class Group4_RandomOpponent extends Group4_StandInStrategy {
+
+    private double minUtility;
+
+    @Override
+    protected void init(Map<String, Double> parameters) {
+        minUtility = parameter(parameters, "minUtility", 0.0);
+    }
+
+    @Override
+    protected BidDetails chooseBid() {
+        return randomBidAbove(minUtility);
+    }
+
+    @Override
+    public Set<BOAparameter> getParameterSpec() {
+        Set<BOAparameter> set = new HashSet<BOAparameter>();
+        set.add(new BOAparameter("minUtility", 0.0, "Minimum utility of the offered bids"));
+        return set;
+    }
+
+    @Override
+    public String getName() {
+        return "Group4 - Stand-in Random";
+    }
+}
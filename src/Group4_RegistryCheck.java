@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.boaframework.NegotiationSession;
+
+/**
+ * Check of the per-opponent routing of Group4_OpponentRegistry in a multilateral session.
+ *
+ * Two opponents take turns: one repeats a single bid, as a hardheaded opponent does, and one
+ * offers random bids. The offers are passed the way Group4_Party does, by setting the sender
+ * and calling updateModel(Bid, double). The check fails if the offers are not counted per
+ * opponent, if an offer reaches the default opponent, if the repeated bid is not the best bid
+ * of the repeating opponent, if the two opponents end up with the same profile, or if a bid
+ * is not evaluated at the lowest utility over the opponents.
+ *
+ * Usage: java Group4_RegistryCheck [--offers 50] [--issues 4] [--values 5] [--seed 0]
+ *
+ * Exits with status 1 if any check failed.
+ */
+public class Group4_RegistryCheck {
+
+    private static final AgentID REPEATING = new AgentID("repeating");
+    private static final AgentID RANDOM = new AgentID("random");
+
+    public static void main(String[] args) throws Exception {
+        int offers = 50;
+        int issues = 4;
+        int values = 5;
+        long seed = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--offers":
+                    offers = Integer.parseInt(args[++i]);
+                    break;
+                case "--issues":
+                    issues = Integer.parseInt(args[++i]);
+                    break;
+                case "--values":
+                    values = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, seed);
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), 2 * offers + 1);
+        Group4_OpponentRegistry registry = new Group4_OpponentRegistry();
+        registry.init(session, new HashMap<>());
+        Random random = new Random(seed);
+        Bid repeated = domain.getDomain().getRandomBid(random);
+
+        for (int i = 0; i < offers; i++) {
+            offer(registry, session, REPEATING, repeated, (2.0 * i + 1) / (2 * offers + 1));
+            offer(registry, session, RANDOM, domain.getDomain().getRandomBid(random), (2.0 * i + 2) / (2 * offers + 1));
+        }
+
+        int failures = 0;
+        if (!registry.getOpponents().equals(new HashSet<>(Arrays.asList(REPEATING, RANDOM)))) {
+            System.err.println("Opponents are " + registry.getOpponents());
+            failures++;
+        }
+        for (AgentID opponent : Arrays.asList(REPEATING, RANDOM)) {
+            if (registry.getOfferCount(opponent) != offers) {
+                System.err.println(opponent.getName() + " has " + registry.getOfferCount(opponent) + " offers");
+                failures++;
+            }
+        }
+        if (Math.abs(registry.getBidEvaluation(REPEATING, repeated) - 1.0) > 1e-9) {
+            System.err.println("Repeated bid is evaluated at " + registry.getBidEvaluation(REPEATING, repeated));
+            failures++;
+        }
+        if (registry.getOpponentCooperative(REPEATING) == registry.getOpponentCooperative(RANDOM)) {
+            System.err.println("Both opponents have the same profile");
+            failures++;
+        }
+        for (int i = 0; i < 100; i++) {
+            Bid bid = domain.getDomain().getRandomBid(random);
+            double lowest = Math.min(registry.getBidEvaluation(REPEATING, bid), registry.getBidEvaluation(RANDOM, bid));
+            if (registry.getBidEvaluation(bid) != lowest) {
+                System.err.println("Bid is evaluated at " + registry.getBidEvaluation(bid) + " instead of " + lowest);
+                failures++;
+                break;
+            }
+        }
+        registry.cleanUp();
+        System.out.println(offers + " offers of 2 opponents, " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void offer(Group4_OpponentRegistry registry, NegotiationSession session, AgentID sender, Bid bid,
+                              double time) {
+        Group4_SyntheticDomain.receive(session, bid, time);
+        registry.setSender(sender);
+        registry.updateModel(bid, time);
+    }
+}
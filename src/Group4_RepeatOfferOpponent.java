@@ -0,0 +1,51 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Stand-in opponent which repeats every offer a number of times before it concedes one step.
+ * Group4_OM labels an opponent as cooperative based on repeated offers, so varying the number
+ * of repeats around the parameter m of Group4_OM exercises both profiles of Group4_BS.
+ *
+ * Default settings: repeat = 3; step = 0.02; minUtility = 0.5
+ */
+public class Group4_RepeatOfferOpponent extends Group4_StandInStrategy {
+
+    private int repeat;
+    private double step;
+    private double minUtility;
+
+    @Override
+    protected void init(Map<String, Double> parameters) {
+        repeat = Math.max(1, (int) parameter(parameters, "repeat", 3));
+        step = parameter(parameters, "step", 0.02);
+        minUtility = parameter(parameters, "minUtility", 0.5);
+    }
+
+    @Override
+    protected BidDetails chooseBid() {
+        int offers = negotiationSession.getOwnBidHistory().size();
+        if (nextBid != null && offers % repeat != 0) {
+            return nextBid;
+        }
+        double target = Math.max(minUtility, 1 - step * (offers / repeat));
+        return outcomeSpace.getBidNearUtility(target);
+    }
+
+    @Override
+    public Set<BOAparameter> getParameterSpec() {
+        Set<BOAparameter> set = new HashSet<BOAparameter>();
+        set.add(new BOAparameter("repeat", 3.0, "Number of times every offer is made"));
+        set.add(new BOAparameter("step", 0.02, "Concession after every repeated offer"));
+        set.add(new BOAparameter("minUtility", 0.5, "Minimum utility"));
+        return set;
+    }
+
+    @Override
+    public String getName() {
+        return "Group4 - Stand-in Repeat Offer";
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only columnar log of session results, read back by Group4_ResultsReader.
+ *
+ * The file starts with the magic "G4RL" and a version, followed by blocks. Every block
+ * starts with its type and the length of its payload:
+ * - 'D' blocks add strings to the dictionary of the file, as an id and UTF-8 bytes.
+ *   Configurations, opponents and domains are stored as the id of their name.
+ * - 'R' blocks hold a number of rows, stored column after column in the order of Column.
+ *
+ * Rows are buffered in primitive columns and written as one block when the buffer is full
+ * or on flush, so a crashed run loses at most the rows of the last block. A block that was
+ * only partly written is cut off when the file is opened again.
+ */
+public class Group4_ResultsLog implements Closeable {
+
+    static final int MAGIC = 0x4734524c;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int BLOCK_HEADER_SIZE = 5;
+    static final byte DICTIONARY = 'D';
+    static final byte ROWS = 'R';
+
+    /** Number of rows per block */
+    static final int BLOCK_ROWS = 4096;
+
+    /** Columns of a row block, in the order they are stored */
+    enum Column {
+        CONFIG(4), OPPONENT(4), DOMAIN(4), SEED(8), AGREEMENT(1),
+        UTILITY_A(4), UTILITY_B(4), DISTANCE_PARETO(4), DISTANCE_NASH(4), ROUNDS(4),
+        OFFENSIVE_BIDS(4), COOPERATIVE_BIDS(4),
+        ACCEPTED_BY_NEXT_BID(4), ACCEPTED_BY_TIME(4), ACCEPTED_BY_UTILITY(4);
+
+        final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+
+        /**
+         * @return The position of this column in a row block of the given number of rows,
+         * relative to the start of the columns.
+         */
+        int offset(int rows) {
+            int offset = 0;
+            for (Column column : values()) {
+                if (column == this) {
+                    return offset;
+                }
+                offset += column.width * rows;
+            }
+            return offset;
+        }
+
+        /**
+         * @return The number of bytes of one row.
+         */
+        static int rowWidth() {
+            int width = 0;
+            for (Column column : values()) {
+                width += column.width;
+            }
+            return width;
+        }
+    }
+
+    private final FileChannel channel;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> newNames = new ArrayList<>();
+    private final ByteBuffer buffer;
+
+    private final int[] config = new int[BLOCK_ROWS];
+    private final int[] opponent = new int[BLOCK_ROWS];
+    private final int[] domain = new int[BLOCK_ROWS];
+    private final long[] seed = new long[BLOCK_ROWS];
+    private final byte[] agreement = new byte[BLOCK_ROWS];
+    private final float[] utilityA = new float[BLOCK_ROWS];
+    private final float[] utilityB = new float[BLOCK_ROWS];
+    private final float[] distancePareto = new float[BLOCK_ROWS];
+    private final float[] distanceNash = new float[BLOCK_ROWS];
+    private final int[] rounds = new int[BLOCK_ROWS];
+    private final int[] offensiveBids = new int[BLOCK_ROWS];
+    private final int[] cooperativeBids = new int[BLOCK_ROWS];
+    private final int[] acceptedByNextBid = new int[BLOCK_ROWS];
+    private final int[] acceptedByTime = new int[BLOCK_ROWS];
+    private final int[] acceptedByUtility = new int[BLOCK_ROWS];
+    private int rows;
+
+    /**
+     * Opens a log for appending. A new file is created if it does not exist, otherwise
+     * the dictionary of the file is read so that new rows can refer to it.
+     *
+     * @param path the file of the log.
+     */
+    public Group4_ResultsLog(Path path) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE + 4 + BLOCK_ROWS * Column.rowWidth());
+        if (exists) {
+            long end = Group4_ResultsReader.readDictionary(channel, dictionary::put);
+            channel.truncate(end);
+            channel.position(end);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            write(header);
+        }
+    }
+
+    /**
+     * Adds the result of a session. The row is written on the next flush.
+     *
+     * @param configName name of the configuration of our agent.
+     * @param opponentName name of the configuration of the opponent.
+     * @param domainName name of the domain.
+     * @param sessionSeed seed of the session.
+     * @param result the result of the session.
+     */
+    public void add(String configName, String opponentName, String domainName, long sessionSeed,
+                    Group4_SessionRunner.Result result) throws IOException {
+        config[rows] = id(configName);
+        opponent[rows] = id(opponentName);
+        domain[rows] = id(domainName);
+        seed[rows] = sessionSeed;
+        agreement[rows] = (byte) (result.agreement ? 1 : 0);
+        utilityA[rows] = (float) result.utilityA;
+        utilityB[rows] = (float) result.utilityB;
+        distancePareto[rows] = (float) result.distancePareto;
+        distanceNash[rows] = (float) result.distanceNash;
+        rounds[rows] = result.rounds;
+        offensiveBids[rows] = result.offensiveBids;
+        cooperativeBids[rows] = result.cooperativeBids;
+        acceptedByNextBid[rows] = result.acceptedByNextBid;
+        acceptedByTime[rows] = result.acceptedByTime;
+        acceptedByUtility[rows] = result.acceptedByUtility;
+        if (++rows == BLOCK_ROWS) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered rows, and the names they refer to, to the file.
+     */
+    public void flush() throws IOException {
+        if (!newNames.isEmpty()) {
+            writeDictionary();
+        }
+        if (rows == 0) {
+            return;
+        }
+        buffer.clear();
+        buffer.put(ROWS).putInt(4 + rows * Column.rowWidth()).putInt(rows);
+        for (int i = 0; i < rows; i++) buffer.putInt(config[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(opponent[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(domain[i]);
+        for (int i = 0; i < rows; i++) buffer.putLong(seed[i]);
+        buffer.put(agreement, 0, rows);
+        for (int i = 0; i < rows; i++) buffer.putFloat(utilityA[i]);
+        for (int i = 0; i < rows; i++) buffer.putFloat(utilityB[i]);
+        for (int i = 0; i < rows; i++) buffer.putFloat(distancePareto[i]);
+        for (int i = 0; i < rows; i++) buffer.putFloat(distanceNash[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(rounds[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(offensiveBids[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(cooperativeBids[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(acceptedByNextBid[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(acceptedByTime[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(acceptedByUtility[i]);
+        buffer.flip();
+        write(buffer);
+        rows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int id(String name) {
+        Integer id = dictionary.get(name);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(name, id);
+            newNames.add(name);
+        }
+        return id;
+    }
+
+    private void writeDictionary() throws IOException {
+        List<byte[]> encoded = new ArrayList<>();
+        int length = 4;
+        for (String name : newNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            length += 8 + bytes.length;
+        }
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + length);
+        block.put(DICTIONARY).putInt(length).putInt(newNames.size());
+        for (int i = 0; i < newNames.size(); i++) {
+            block.putInt(dictionary.get(newNames.get(i))).putInt(encoded.get(i).length).put(encoded.get(i));
+        }
+        block.flip();
+        write(block);
+        newNames.clear();
+    }
+
+    private void write(ByteBuffer block) throws IOException {
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Computes aggregate statistics over logs written by Group4_ResultsLog.
+ *
+ * The files are memory-mapped in windows and every row block is aggregated column by
+ * column straight from the mapping, so the rows are never loaded onto the heap and the
+ * memory use only depends on the number of groups.
+ *
+ * Usage: java Group4_ResultsReader [--by config|opponent|domain] file...
+ *
+ * Prints one CSV line per group: the number of sessions, the agreement rate, the mean
+ * utilities and distances to the Pareto frontier and Nash point over the agreements, the
+ * mean number of rounds, the share of offensive bids of Group4_BS, and per condition of
+ * Group4_AS the number of accepts it held for, per session.
+ */
+public class Group4_ResultsReader {
+
+    /** Size of the mapped windows */
+    static final long WINDOW = 1L << 30;
+
+    /** Groups the sessions by configuration, and optionally by opponent or domain */
+    public enum GroupBy { CONFIG, OPPONENT, DOMAIN }
+
+    /**
+     * Sums of the sessions of a group.
+     */
+    public static class Aggregate {
+        public long sessions;
+        public long agreements;
+        public double utilityA;
+        public double utilityB;
+        public double distancePareto;
+        public double distanceNash;
+        public long rounds;
+        public long offensiveBids;
+        public long cooperativeBids;
+        public long acceptedByNextBid;
+        public long acceptedByTime;
+        public long acceptedByUtility;
+
+        private static double mean(double sum, long count) {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%.4f,%.4f,%.4f,%.4f,%.4f,%.2f,%.4f,%.4f,%.4f,%.4f",
+                    sessions, mean(agreements, sessions), mean(utilityA, agreements), mean(utilityB, agreements),
+                    mean(distancePareto, agreements), mean(distanceNash, agreements), mean(rounds, sessions),
+                    mean(offensiveBids, offensiveBids + cooperativeBids), mean(acceptedByNextBid, sessions),
+                    mean(acceptedByTime, sessions), mean(acceptedByUtility, sessions));
+        }
+    }
+
+    private final GroupBy groupBy;
+    // Names of all files, so that groups of different files with the same names are merged.
+    private final Map<String, Integer> names = new HashMap<>();
+    private final List<String> nameList = new ArrayList<>();
+    private final Map<Long, Aggregate> aggregates = new LinkedHashMap<>();
+
+    public Group4_ResultsReader(GroupBy groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    /**
+     * Reads the dictionary blocks of a log.
+     *
+     * @param channel the channel of the log.
+     * @param names receives every name of the dictionary with its id.
+     * @return The end of the last complete block.
+     */
+    static long readDictionary(FileChannel channel, BiConsumer<String, Integer> names) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(Group4_ResultsLog.HEADER_SIZE);
+        readFully(channel, header, 0);
+        checkHeader(header);
+        long position = Group4_ResultsLog.HEADER_SIZE;
+        ByteBuffer blockHeader = ByteBuffer.allocate(Group4_ResultsLog.BLOCK_HEADER_SIZE);
+        while (position + Group4_ResultsLog.BLOCK_HEADER_SIZE <= size) {
+            blockHeader.clear();
+            readFully(channel, blockHeader, position);
+            byte type = blockHeader.get(0);
+            int length = blockHeader.getInt(1);
+            long end = position + Group4_ResultsLog.BLOCK_HEADER_SIZE + length;
+            if (end > size) {
+                break;
+            }
+            if (type == Group4_ResultsLog.DICTIONARY) {
+                ByteBuffer block = ByteBuffer.allocate(length);
+                readFully(channel, block, position + Group4_ResultsLog.BLOCK_HEADER_SIZE);
+                block.flip();
+                readNames(block, names);
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    /**
+     * Aggregates the sessions of a log.
+     *
+     * @param path the file of the log.
+     */
+    public void read(Path path) throws IOException {
+        // Ids of this file to ids of all files
+        int[][] ids = {new int[16]};
+        scan(path, (name, id) -> {
+            if (id >= ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], Math.max(id + 1, ids[0].length * 2));
+            }
+            ids[0][id] = globalId(name);
+        }, block -> aggregate(block, ids[0]));
+    }
+
+    /**
+     * Receives the rows of a log one by one.
+     */
+    public interface RowConsumer {
+        void accept(String config, String opponent, String domain, long seed, Group4_SessionRunner.Result result)
+                throws IOException;
+    }
+
+    /**
+     * Decodes every row of a log, for example to copy it into another log.
+     *
+     * @param path the file of the log.
+     * @param rows receives every row, in the order they were written.
+     */
+    public static void forEachRow(Path path, RowConsumer rows) throws IOException {
+        List<String> names = new ArrayList<>();
+        scan(path, (name, id) -> {
+            while (names.size() <= id) {
+                names.add(null);
+            }
+            names.set(id, name);
+        }, block -> {
+            int count = block.getInt(0);
+            for (int i = 0; i < count; i++) {
+                Group4_SessionRunner.Result result = new Group4_SessionRunner.Result();
+                result.agreement = block.get(4 + Group4_ResultsLog.Column.AGREEMENT.offset(count) + i) != 0;
+                result.utilityA = getFloat(block, Group4_ResultsLog.Column.UTILITY_A, count, i);
+                result.utilityB = getFloat(block, Group4_ResultsLog.Column.UTILITY_B, count, i);
+                result.distancePareto = getFloat(block, Group4_ResultsLog.Column.DISTANCE_PARETO, count, i);
+                result.distanceNash = getFloat(block, Group4_ResultsLog.Column.DISTANCE_NASH, count, i);
+                result.rounds = getInt(block, Group4_ResultsLog.Column.ROUNDS, count, i);
+                result.offensiveBids = getInt(block, Group4_ResultsLog.Column.OFFENSIVE_BIDS, count, i);
+                result.cooperativeBids = getInt(block, Group4_ResultsLog.Column.COOPERATIVE_BIDS, count, i);
+                result.acceptedByNextBid = getInt(block, Group4_ResultsLog.Column.ACCEPTED_BY_NEXT_BID, count, i);
+                result.acceptedByTime = getInt(block, Group4_ResultsLog.Column.ACCEPTED_BY_TIME, count, i);
+                result.acceptedByUtility = getInt(block, Group4_ResultsLog.Column.ACCEPTED_BY_UTILITY, count, i);
+                rows.accept(names.get(getInt(block, Group4_ResultsLog.Column.CONFIG, count, i)),
+                        names.get(getInt(block, Group4_ResultsLog.Column.OPPONENT, count, i)),
+                        names.get(getInt(block, Group4_ResultsLog.Column.DOMAIN, count, i)),
+                        block.getLong(4 + Group4_ResultsLog.Column.SEED.offset(count) + 8 * i), result);
+            }
+        });
+    }
+
+    private static int getInt(ByteBuffer block, Group4_ResultsLog.Column column, int rows, int row) {
+        return block.getInt(4 + column.offset(rows) + 4 * row);
+    }
+
+    private static float getFloat(ByteBuffer block, Group4_ResultsLog.Column column, int rows, int row) {
+        return block.getFloat(4 + column.offset(rows) + 4 * row);
+    }
+
+    /** Receives a row block */
+    private interface BlockConsumer {
+        void accept(ByteBuffer block) throws IOException;
+    }
+
+    /**
+     * Maps a log in windows and passes its dictionary entries and row blocks on, in file order.
+     * A block that was only partly written ends the scan.
+     */
+    private static void scan(Path path, BiConsumer<String, Integer> names, BlockConsumer rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(Group4_ResultsLog.HEADER_SIZE);
+            readFully(channel, header, 0);
+            checkHeader(header);
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            long position = Group4_ResultsLog.HEADER_SIZE;
+            while (position + Group4_ResultsLog.BLOCK_HEADER_SIZE <= size) {
+                if (window == null || position + Group4_ResultsLog.BLOCK_HEADER_SIZE > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW, size - windowStart));
+                }
+                int offset = (int) (position - windowStart);
+                byte type = window.get(offset);
+                int length = window.getInt(offset + 1);
+                long end = position + Group4_ResultsLog.BLOCK_HEADER_SIZE + length;
+                if (end > size) {
+                    // The last block was only partly written
+                    break;
+                }
+                if (end > windowStart + window.limit()) {
+                    // Map the block in the next window
+                    window = null;
+                    continue;
+                }
+                ByteBuffer block = window.duplicate();
+                block.position(offset + Group4_ResultsLog.BLOCK_HEADER_SIZE).limit((int) (end - windowStart));
+                if (type == Group4_ResultsLog.DICTIONARY) {
+                    readNames(block.slice(), names);
+                } else if (type == Group4_ResultsLog.ROWS) {
+                    rows.accept(block.slice());
+                }
+                position = end;
+            }
+        }
+    }
+
+    /**
+     * Aggregates a row block, column by column.
+     */
+    private void aggregate(ByteBuffer block, int[] ids) {
+        int rows = block.getInt(0);
+        int base = 4;
+        Aggregate[] groups = new Aggregate[rows];
+        int config = base + Group4_ResultsLog.Column.CONFIG.offset(rows);
+        int second = base + (groupBy == GroupBy.OPPONENT ? Group4_ResultsLog.Column.OPPONENT.offset(rows)
+                : Group4_ResultsLog.Column.DOMAIN.offset(rows));
+        long lastKey = -1;
+        Aggregate last = null;
+        for (int i = 0; i < rows; i++) {
+            long key = (long) ids[block.getInt(config + 4 * i)] << 32;
+            if (groupBy != GroupBy.CONFIG) {
+                key |= ids[block.getInt(second + 4 * i)];
+            }
+            // Sessions of a group are mostly logged one after the other
+            if (last == null || key != lastKey) {
+                last = aggregates.get(key);
+                if (last == null) {
+                    last = new Aggregate();
+                    aggregates.put(key, last);
+                }
+                lastKey = key;
+            }
+            groups[i] = last;
+        }
+
+        int agreement = base + Group4_ResultsLog.Column.AGREEMENT.offset(rows);
+        int utilityA = base + Group4_ResultsLog.Column.UTILITY_A.offset(rows);
+        int utilityB = base + Group4_ResultsLog.Column.UTILITY_B.offset(rows);
+        int distancePareto = base + Group4_ResultsLog.Column.DISTANCE_PARETO.offset(rows);
+        int distanceNash = base + Group4_ResultsLog.Column.DISTANCE_NASH.offset(rows);
+        for (int i = 0; i < rows; i++) {
+            Aggregate group = groups[i];
+            group.sessions++;
+            if (block.get(agreement + i) != 0) {
+                group.agreements++;
+                group.utilityA += block.getFloat(utilityA + 4 * i);
+                group.utilityB += block.getFloat(utilityB + 4 * i);
+                group.distancePareto += block.getFloat(distancePareto + 4 * i);
+                group.distanceNash += block.getFloat(distanceNash + 4 * i);
+            }
+        }
+        int rounds = base + Group4_ResultsLog.Column.ROUNDS.offset(rows);
+        int offensive = base + Group4_ResultsLog.Column.OFFENSIVE_BIDS.offset(rows);
+        int cooperative = base + Group4_ResultsLog.Column.COOPERATIVE_BIDS.offset(rows);
+        int nextBid = base + Group4_ResultsLog.Column.ACCEPTED_BY_NEXT_BID.offset(rows);
+        int time = base + Group4_ResultsLog.Column.ACCEPTED_BY_TIME.offset(rows);
+        int utility = base + Group4_ResultsLog.Column.ACCEPTED_BY_UTILITY.offset(rows);
+        for (int i = 0; i < rows; i++) {
+            Aggregate group = groups[i];
+            group.rounds += block.getInt(rounds + 4 * i);
+            group.offensiveBids += block.getInt(offensive + 4 * i);
+            group.cooperativeBids += block.getInt(cooperative + 4 * i);
+            group.acceptedByNextBid += block.getInt(nextBid + 4 * i);
+            group.acceptedByTime += block.getInt(time + 4 * i);
+            group.acceptedByUtility += block.getInt(utility + 4 * i);
+        }
+    }
+
+    /**
+     * @return The aggregates by the names of their group, in the order the groups were found.
+     */
+    public Map<List<String>, Aggregate> getAggregates() {
+        Map<List<String>, Aggregate> result = new LinkedHashMap<>();
+        for (Map.Entry<Long, Aggregate> entry : aggregates.entrySet()) {
+            List<String> group = new ArrayList<>();
+            group.add(nameList.get((int) (entry.getKey() >>> 32)));
+            if (groupBy != GroupBy.CONFIG) {
+                group.add(nameList.get((int) (long) entry.getKey()));
+            }
+            result.put(group, entry.getValue());
+        }
+        return result;
+    }
+
+    private int globalId(String name) {
+        Integer id = names.get(name);
+        if (id == null) {
+            id = nameList.size();
+            names.put(name, id);
+            nameList.add(name);
+        }
+        return id;
+    }
+
+    private static void readNames(ByteBuffer block, BiConsumer<String, Integer> names) {
+        int count = block.getInt();
+        for (int i = 0; i < count; i++) {
+            int id = block.getInt();
+            byte[] bytes = new byte[block.getInt()];
+            block.get(bytes);
+            names.accept(new String(bytes, StandardCharsets.UTF_8), id);
+        }
+    }
+
+    private static void checkHeader(ByteBuffer header) throws IOException {
+        if (header.getInt(0) != Group4_ResultsLog.MAGIC || header.getInt(4) != Group4_ResultsLog.VERSION) {
+            throw new IOException("Not a results log of version " + Group4_ResultsLog.VERSION);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of results log");
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public static void main(String[] args) throws IOException {
+        GroupBy groupBy = GroupBy.CONFIG;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--by")) {
+                groupBy = GroupBy.valueOf(args[++i].toUpperCase(Locale.ROOT));
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        Group4_ResultsReader reader = new Group4_ResultsReader(groupBy);
+        long start = System.nanoTime();
+        for (Path file : files) {
+            reader.read(file);
+        }
+        long sessions = 0;
+        System.out.println("config" + (groupBy == GroupBy.CONFIG ? "" : "," + groupBy.name().toLowerCase(Locale.ROOT))
+                + ",sessions,agreement_rate,utility,opponent_utility,distance_pareto,distance_nash,rounds,"
+                + "offensive_share,accepted_by_next_bid,accepted_by_time,accepted_by_utility");
+        for (Map.Entry<List<String>, Aggregate> entry : reader.getAggregates().entrySet()) {
+            StringBuilder line = new StringBuilder();
+            for (String name : entry.getKey()) {
+                line.append(csv(name)).append(',');
+            }
+            System.out.println(line.append(entry.getValue().toCsv()));
+            sessions += entry.getValue().sessions;
+        }
+        System.err.println(String.format(Locale.ROOT, "%d sessions in %.2f s", sessions,
+                (System.nanoTime() - start) / 1e9));
+    }
+}
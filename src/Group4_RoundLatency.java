@@ -0,0 +1,161 @@
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+
+/**
+ * Streaming estimate of the duration of a round, and of the number of rounds left.
+ *
+ * On every own turn the time since the previous own turn is added to an exponentially
+ * weighted mean and variance. The round is also split into the time until the reply of
+ * the opponent and the time from the reply to our next turn, so that a slow opponent can
+ * be told apart from a slow agent. The number of rounds left is predicted from the mean
+ * plus one standard deviation, so it errs on the side of fewer rounds.
+ *
+ * With a constant round duration the rounds left follow the normalized time, but when
+ * the opponent slows down near the deadline they drop much faster than the time, which
+ * is what the bidding and acceptance strategies need to concede or accept in time.
+ *
+ * Shared by the components of a session through Group4_SessionContext, and updated at
+ * most once per own turn whichever component asks first.
+ */
+public class Group4_RoundLatency {
+
+    /** Weight of the newest duration in the moving averages */
+    static final double ALPHA = 0.25;
+
+    /** Number of standard deviations added to the mean duration of a round */
+    static final double DEVIATIONS = 1.0;
+
+    /**
+     * Exponentially weighted mean and variance of a duration.
+     */
+    static class Estimate {
+        private double mean;
+        private double variance;
+        private int count;
+
+        void add(double duration) {
+            if (count++ == 0) {
+                mean = duration;
+                return;
+            }
+            double difference = duration - mean;
+            mean += ALPHA * difference;
+            variance = (1 - ALPHA) * (variance + ALPHA * difference * difference);
+        }
+
+        double getMean() {
+            return count == 0 ? Double.NaN : mean;
+        }
+
+        double getDeviation() {
+            return Math.sqrt(variance);
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
+    private final Group4_SessionContext context;
+    private final Estimate round = new Estimate();
+    private final Estimate opponent = new Estimate();
+    private final Estimate own = new Estimate();
+
+    private int observedTurn = -1;
+    private int turns;
+    private double lastTurnTime = -1;
+    private double time;
+
+    Group4_RoundLatency(Group4_SessionContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Adds the current turn to the estimate, unless it was already added. Has to be called
+     * on our own turn, before the bid of the turn is added to the own bid history.
+     *
+     * @param session the negotiation session.
+     */
+    public synchronized void update(NegotiationSession session) {
+        int turn = session.getOwnBidHistory().size();
+        if (turn == observedTurn) {
+            return;
+        }
+        observedTurn = turn;
+        time = context.getTime();
+        if (lastTurnTime >= 0) {
+            round.add(time - lastTurnTime);
+            // The times of the bids are session times, which the logical clock does not follow
+            BidDetails reply = session.getOpponentBidHistory().getLastBidDetails();
+            if (!context.isDeterministic() && reply != null && reply.getTime() >= lastTurnTime) {
+                opponent.add(reply.getTime() - lastTurnTime);
+                own.add(time - reply.getTime());
+            }
+        }
+        lastTurnTime = time;
+        turns++;
+    }
+
+    /**
+     * Moves the current turn to now, after a deliberate pause of the agent such as the scare
+     * sleep of Group4_BS, so that the pause is not measured as part of the next round.
+     */
+    public synchronized void resume() {
+        if (lastTurnTime >= 0) {
+            time = context.getTime();
+            lastTurnTime = time;
+        }
+    }
+
+    /**
+     * @return The predicted number of complete rounds left after the current turn,
+     * or infinity if no round was measured yet.
+     */
+    public synchronized double getRoundsLeft() {
+        if (round.getCount() == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double duration = round.getMean() + DEVIATIONS * round.getDeviation();
+        if (duration <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(0, Math.floor((1 - time) / duration));
+    }
+
+    /**
+     * Converts the rounds left into a normalized time: the share of the predicted rounds
+     * that has been used. Never earlier than the time of the clock.
+     *
+     * @param ahead number of turns after the current turn.
+     * @return The time in rounds of the current turn, or of a later turn.
+     */
+    public synchronized double getRoundTime(int ahead) {
+        double left = getRoundsLeft();
+        if (Double.isInfinite(left)) {
+            return time;
+        }
+        left = Math.max(0, left - ahead);
+        return Math.max(time, (turns + ahead) / (turns + ahead + left));
+    }
+
+    /**
+     * @return The mean duration of a round, NaN if unknown.
+     */
+    public synchronized double getRoundDuration() {
+        return round.getMean();
+    }
+
+    /**
+     * @return The mean time from our bid to the reply of the opponent, NaN if unknown.
+     */
+    public synchronized double getOpponentLatency() {
+        return opponent.getMean();
+    }
+
+    /**
+     * @return The mean time from the reply of the opponent to our next turn, NaN if unknown.
+     */
+    public synchronized double getOwnLatency() {
+        return own.getMean();
+    }
+}
@@ -0,0 +1,339 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntToDoubleFunction;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.NoModel;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Scaling regression suite of the Group4 components.
+ *
+ * Every sweep runs a component over a geometric range of one dimension (history length,
+ * number of issues, values per issue or number of outcomes) on synthetic domains, and fits
+ * the exponent of the cost curve by least squares on a log-log scale. A sweep fails when the
+ * fitted exponent exceeds the exponent of the declared complexity class by more than the
+ * tolerance, which means the component grows faster than it should.
+ *
+ * The sizes are spread over every decade, so the fit does not hang on a few small sizes, and
+ * the median of the repeats is fitted. A single sample runs a cheap operation as often as it
+ * takes to fill MIN_SAMPLE_NANOS, so small sizes are not lost in the resolution of the timer.
+ *
+ * Usage: java Group4_ScalingSuite [--out report.json] [--max-history 100000] [--tolerance 0.3] [--repeats 15]
+ *
+ * The report is written as JSON, and the process exits with status 1 if any sweep fails.
+ */
+public class Group4_ScalingSuite {
+
+    /** Measures the cost of one operation at the given size, in nanoseconds */
+    interface Probe {
+        double measure(int size) throws Exception;
+    }
+
+    /** One call of the operation which is timed, returning its result so the call is not optimized away */
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    /** A component swept over one dimension, with its declared complexity */
+    static class Sweep {
+        final String component;
+        final String dimension;
+        final String declaredClass;
+        final double declaredExponent;
+        final int[] sizes;
+        final Probe probe;
+        // Converts a size of the sweep to the size the complexity is declared in
+        final IntToDoubleFunction scale;
+        double[] costs;
+        double exponent;
+        boolean passed;
+
+        Sweep(String component, String dimension, String declaredClass, double declaredExponent,
+              int[] sizes, Probe probe) {
+            this(component, dimension, declaredClass, declaredExponent, sizes, probe, size -> size);
+        }
+
+        Sweep(String component, String dimension, String declaredClass, double declaredExponent,
+              int[] sizes, Probe probe, IntToDoubleFunction scale) {
+            this.component = component;
+            this.dimension = dimension;
+            this.declaredClass = declaredClass;
+            this.declaredExponent = declaredExponent;
+            this.sizes = sizes;
+            this.probe = probe;
+            this.scale = scale;
+        }
+    }
+
+    private static final long SEED = 4;
+
+    /** Minimum time of a sample, over which a cheap operation is repeated */
+    static final long MIN_SAMPLE_NANOS = 2000000;
+
+    /** Number of sizes per decade of a geometric sweep */
+    static final int SIZES_PER_DECADE = 4;
+
+    /** Results of the timed operations, read so the calls are not optimized away */
+    static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        String out = null;
+        int maxHistory = 100000;
+        double tolerance = 0.3;
+        int repeats = 15;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--max-history":
+                    maxHistory = Integer.parseInt(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--repeats":
+                    repeats = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+        // The suite only needs reproducible bids, not the wall clock
+        Group4_SessionContext.setMasterSeed(SEED);
+
+        List<Sweep> sweeps = new ArrayList<>();
+        int[] histories = geometric(10, maxHistory);
+        sweeps.add(new Sweep("Group4_OM.getBidEvaluation", "history length", "O(n)", 1,
+                histories, Group4_ScalingSuite::evaluationByHistory));
+        sweeps.add(new Sweep("Group4_OM.updateModel", "history length", "O(1)", 0,
+                histories, Group4_ScalingSuite::updateByHistory));
+        sweeps.add(new Sweep("Group4_OM.getBidEvaluation", "issues", "O(n)", 1,
+                new int[] {2, 3, 4, 6, 8, 12, 16, 24, 32}, Group4_ScalingSuite::evaluationByIssues));
+        sweeps.add(new Sweep("Group4_OM.getBidEvaluation", "values per issue", "O(1)", 0,
+                new int[] {2, 3, 4, 6, 8, 12, 16, 24, 32}, Group4_ScalingSuite::evaluationByValues));
+        sweeps.add(new Sweep("Group4_OMS.getBid", "candidate bids", "O(n log n)", 1,
+                geometric(10, Math.min(maxHistory, 10000)), Group4_ScalingSuite::omsBySize));
+        sweeps.add(new Sweep("Group4_BS.init", "outcomes (values per issue)", "O(n log n)", 1,
+                new int[] {2, 3, 4, 6, 8, 12, 16, 24, 32}, values -> bsInit(3, values), values -> Math.pow(values, 3)));
+        sweeps.add(new Sweep("Group4_BS.init", "outcomes (issues)", "O(n log n)", 1,
+                new int[] {1, 2, 3, 4, 5, 6, 7}, issues -> bsInit(issues, 4), issues -> Math.pow(4, issues)));
+
+        boolean allPassed = true;
+        for (Sweep sweep : sweeps) {
+            run(sweep, repeats, tolerance);
+            allPassed &= sweep.passed;
+            System.out.println(String.format(Locale.ROOT, "%-30s %-28s declared %-10s fitted n^%.2f %s",
+                    sweep.component, sweep.dimension, sweep.declaredClass, sweep.exponent,
+                    sweep.passed ? "PASS" : "FAIL"));
+        }
+
+        String report = report(sweeps, tolerance);
+        if (out == null) {
+            System.out.println(report);
+        } else {
+            try (PrintWriter writer = new PrintWriter(out, "UTF-8")) {
+                writer.println(report);
+            }
+        }
+        System.exit(allPassed ? 0 : 1);
+    }
+
+    /**
+     * Measures every size of the sweep, keeps the median of the repeats and fits the exponent
+     * against the scaled sizes.
+     */
+    static void run(Sweep sweep, int repeats, double tolerance) throws Exception {
+        sweep.costs = new double[sweep.sizes.length];
+        double[] x = new double[sweep.sizes.length];
+        for (int i = 0; i < sweep.sizes.length; i++) {
+            // Warm up the code paths before measuring
+            sweep.probe.measure(sweep.sizes[i]);
+            double[] samples = new double[repeats];
+            for (int r = 0; r < repeats; r++) {
+                samples[r] = sweep.probe.measure(sweep.sizes[i]);
+            }
+            Arrays.sort(samples);
+            sweep.costs[i] = samples[repeats / 2];
+            x[i] = sweep.scale.applyAsDouble(sweep.sizes[i]);
+        }
+        sweep.exponent = fitExponent(x, sweep.costs);
+        sweep.passed = sweep.exponent <= sweep.declaredExponent + tolerance;
+    }
+
+    /**
+     * @return The slope of the least squares line through (log x, log y).
+     */
+    static double fitExponent(double[] x, double[] y) {
+        int n = x.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < n; i++) {
+            double lx = Math.log(x[i]);
+            double ly = Math.log(Math.max(y[i], 1.0));
+            sx += lx;
+            sy += ly;
+            sxx += lx * lx;
+            sxy += lx * ly;
+        }
+        double denominator = n * sxx - sx * sx;
+        return denominator == 0 ? 0 : (n * sxy - sx * sy) / denominator;
+    }
+
+    /**
+     * @return SIZES_PER_DECADE sizes per decade from the first size up to the last.
+     */
+    static int[] geometric(int from, int to) {
+        TreeSet<Integer> sizes = new TreeSet<>();
+        for (int k = 0; ; k++) {
+            long size = Math.round(from * Math.pow(10, (double) k / SIZES_PER_DECADE));
+            if (size > to) {
+                break;
+            }
+            sizes.add((int) size);
+        }
+        int[] result = new int[sizes.size()];
+        int i = 0;
+        for (int size : sizes) {
+            result[i++] = size;
+        }
+        return result;
+    }
+
+    /**
+     * Runs the operation until MIN_SAMPLE_NANOS have passed, at least once.
+     *
+     * @return The mean time of a call in nanoseconds.
+     */
+    static double nanosPerCall(Operation operation) throws Exception {
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = operation.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_SAMPLE_NANOS);
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * Creates a Group4_OM that has received the given number of random opponent offers.
+     */
+    static Group4_OM trainedModel(Group4_SyntheticDomain domain, NegotiationSession session, int offers,
+                                  Random random) {
+        Group4_OM model = new Group4_OM();
+        model.init(session, new HashMap<>());
+        for (int i = 0; i < offers; i++) {
+            Bid bid = domain.getDomain().getRandomBid(random);
+            double time = (double) i / offers;
+            Group4_SyntheticDomain.receive(session, bid, time);
+            model.updateModel(bid, time);
+        }
+        return model;
+    }
+
+    static double evaluationByHistory(int history) throws Exception {
+        return evaluation(6, 6, history);
+    }
+
+    static double evaluationByIssues(int issues) throws Exception {
+        return evaluation(issues, 4, 1000);
+    }
+
+    static double evaluationByValues(int values) throws Exception {
+        return evaluation(4, values, 1000);
+    }
+
+    static double evaluation(int issues, int values, int history) throws Exception {
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, SEED);
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), history + 1);
+        Random random = new Random(SEED);
+        Group4_OM model = trainedModel(domain, session, history, random);
+        Bid[] bids = new Bid[200];
+        for (int i = 0; i < bids.length; i++) {
+            bids[i] = domain.getDomain().getRandomBid(random);
+        }
+        long start = System.nanoTime();
+        double sink = 0;
+        for (Bid bid : bids) {
+            sink += model.getBidEvaluation(bid);
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink < 0 ? -1 : (double) elapsed / bids.length;
+    }
+
+    static double updateByHistory(int history) throws Exception {
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(6, 6, SEED);
+        int updates = 200;
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), history + updates);
+        Random random = new Random(SEED);
+        Group4_OM model = trainedModel(domain, session, history, random);
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            Bid bid = domain.getDomain().getRandomBid(random);
+            Group4_SyntheticDomain.receive(session, bid, 1.0);
+            model.updateModel(bid, 1.0);
+        }
+        return (double) (System.nanoTime() - start) / updates;
+    }
+
+    static double omsBySize(int size) throws Exception {
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(6, 6, SEED);
+        AdditiveUtilitySpace utilitySpace = domain.createProfile(0);
+        NegotiationSession session = Group4_SyntheticDomain.createSession(utilitySpace, 1000);
+        Random random = new Random(SEED);
+        Group4_OM model = trainedModel(domain, session, 10, random);
+        Group4_OMS oms = new Group4_OMS();
+        oms.init(session, model, new HashMap<>());
+        List<BidDetails> bids = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Bid bid = domain.getDomain().getRandomBid(random);
+            bids.add(new BidDetails(bid, utilitySpace.getUtility(bid)));
+        }
+        return nanosPerCall(() -> oms.getBid(bids));
+    }
+
+    static double bsInit(int issues, int values) throws Exception {
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, SEED);
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), 1000);
+        return nanosPerCall(() -> {
+            Group4_BS bs = new Group4_BS();
+            bs.init(session, new NoModel(), new Group4_OMS(), new HashMap<>());
+            return bs;
+        });
+    }
+
+    static String report(List<Sweep> sweeps, double tolerance) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"tolerance\": ").append(tolerance).append(",\n  \"sweeps\": [");
+        for (int s = 0; s < sweeps.size(); s++) {
+            Sweep sweep = sweeps.get(s);
+            json.append(s == 0 ? "\n" : ",\n");
+            json.append("    {\"component\": \"").append(sweep.component)
+                    .append("\", \"dimension\": \"").append(sweep.dimension)
+                    .append("\", \"declared\": \"").append(sweep.declaredClass)
+                    .append("\", \"declaredExponent\": ").append(sweep.declaredExponent)
+                    .append(", \"fittedExponent\": ").append(String.format(Locale.ROOT, "%.4f", sweep.exponent))
+                    .append(", \"passed\": ").append(sweep.passed)
+                    .append(", \"points\": [");
+            for (int i = 0; i < sweep.sizes.length; i++) {
+                json.append(i == 0 ? "" : ", ");
+                json.append("{\"size\": ").append(sweep.sizes[i])
+                        .append(", \"nanos\": ").append(String.format(Locale.ROOT, "%.1f", sweep.costs[i])).append("}");
+            }
+            json.append("]}");
+        }
+        json.append("\n  ]\n}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.WeakHashMap;
+
+import genius.core.boaframework.NegotiationSession;
+import genius.core.timeline.DiscreteTimeline;
+
+/**
+ * State which is shared by the Group4 components of a single negotiation session.
+ *
+ * The context holds the randomness and the clock of the session. In the default mode
+ * the randomness is unseeded and the time is read from the session. In the deterministic
+ * mode every component draws from its own SplittableRandom, derived from one master seed,
+ * the session and the component name, and the time comes from a logical clock. The streams
+ * do not depend on the order in which components are created, and sessions which are bound
+ * by a harness do not depend on the order of the sessions either, so parallel runs are
+ * reproducible whatever the thread scheduling.
+ *
+ * The deterministic mode is enabled by a non-negative "seed" parameter of a Group4 strategy,
+ * by the system property group4.seed, or by binding the session explicitly. Genius passes the
+ * default of every declared parameter, so the default seed of -1 means the mode is off. The
+ * opponent models are initialized first by BOA, so they only look the context up and never
+ * create it.
+ */
+public final class Group4_SessionContext {
+
+    /**
+     * Contexts per session, removed together with the session or by remove. The values may
+     * not hold the session strongly, or they would keep their own key alive.
+     */
+    private static final Map<NegotiationSession, Group4_SessionContext> CONTEXTS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Number of sessions started per profile, to tell repeated sessions on a profile apart */
+    private static final Map<String, Integer> OCCURRENCES = new HashMap<>();
+
+    /** Master seed of the process, null when no seed is configured */
+    private static volatile Long masterSeed = Long.getLong("group4.seed");
+
+    /** Seed of this session, null in the default mode */
+    private final Long sessionSeed;
+
+    private volatile Group4_Clock clock;
+
+    private Group4_RoundLatency roundLatency;
+
+    private volatile Group4_UpdatePolicy updatePolicy;
+
+    private Group4_SessionContext(Long sessionSeed, Group4_Clock clock) {
+        this.sessionSeed = sessionSeed;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the context of the session, creating it on first use.
+     *
+     * @param session the negotiation session.
+     * @param parameters the parameters of the calling component, may contain "seed" and "rounds".
+     *        A negative or NaN seed keeps the mode of the process.
+     * @return The context of the session.
+     */
+    public static Group4_SessionContext of(NegotiationSession session, Map<String, Double> parameters) {
+        synchronized (CONTEXTS) {
+            Group4_SessionContext context = CONTEXTS.get(session);
+            if (context == null) {
+                Long seed = masterSeed;
+                Double parameter = parameters == null ? null : parameters.get("seed");
+                if (parameter != null && parameter >= 0) {
+                    seed = parameter.longValue();
+                }
+                if (seed == null) {
+                    context = new Group4_SessionContext(null, Group4_Clock.session(session));
+                } else {
+                    int rounds = 1000;
+                    if (session.getTimeline() instanceof DiscreteTimeline) {
+                        rounds = (int) session.getTimeline().getTotalTime();
+                    } else if (parameters != null && parameters.get("rounds") != null) {
+                        rounds = parameters.get("rounds").intValue();
+                    }
+                    context = new Group4_SessionContext(mix(seed, sessionKey(session)),
+                            Group4_Clock.logical(session, rounds));
+                }
+                CONTEXTS.put(session, context);
+            }
+            return context;
+        }
+    }
+
+    /**
+     * Returns the context of the session without creating it. Opponent models use this, as BOA
+     * initializes them before the strategies which declare the "seed" parameter, and the first
+     * component to create the context decides its seed.
+     *
+     * @param session the negotiation session.
+     * @return The context of the session, or null if no component created it yet.
+     */
+    public static Group4_SessionContext find(NegotiationSession session) {
+        return CONTEXTS.get(session);
+    }
+
+    /**
+     * @param session the negotiation session.
+     * @return The context of the session, creating it on first use.
+     */
+    public static Group4_SessionContext of(NegotiationSession session) {
+        return of(session, null);
+    }
+
+    /**
+     * Binds the session to an explicit seed and clock, as done by a tournament harness which
+     * numbers its sessions. Has to be called before the components are initialized.
+     *
+     * @param session the negotiation session.
+     * @param sessionSeed the seed of this session.
+     * @param clock the clock of this session.
+     * @return The context of the session.
+     */
+    public static Group4_SessionContext bind(NegotiationSession session, long sessionSeed, Group4_Clock clock) {
+        Group4_SessionContext context = new Group4_SessionContext(sessionSeed, clock);
+        CONTEXTS.put(session, context);
+        return context;
+    }
+
+    /**
+     * Removes the context of a finished session, called from the cleanUp of the components.
+     * Components keep the context they got in init, so a late call does not affect them.
+     *
+     * @param session the negotiation session.
+     */
+    public static void remove(NegotiationSession session) {
+        CONTEXTS.remove(session);
+    }
+
+    /**
+     * Sets the master seed of the process for sessions that are created afterwards.
+     *
+     * @param seed the master seed, or null to disable the deterministic mode.
+     */
+    public static void setMasterSeed(Long seed) {
+        masterSeed = seed;
+    }
+
+    /**
+     * @return If the session runs in the deterministic mode.
+     */
+    public boolean isDeterministic() {
+        return sessionSeed != null;
+    }
+
+    /**
+     * Returns a new random stream for a component. In the deterministic mode the stream only
+     * depends on the session seed and the component name, so components should ask once and
+     * keep the stream.
+     *
+     * @param component the name of the component.
+     * @return The random stream.
+     */
+    public SplittableRandom random(String component) {
+        if (sessionSeed == null) {
+            return new SplittableRandom();
+        }
+        return new SplittableRandom(mix(sessionSeed, component.hashCode()));
+    }
+
+    /**
+     * @return The clock of the session.
+     */
+    public Group4_Clock getClock() {
+        return clock;
+    }
+
+    public void setClock(Group4_Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return The normalized time according to the clock of the session.
+     */
+    public double getTime() {
+        return clock.getTime();
+    }
+
+    /**
+     * @return The round latency estimate of the session, created on first use.
+     */
+    public synchronized Group4_RoundLatency getRoundLatency() {
+        if (roundLatency == null) {
+            roundLatency = new Group4_RoundLatency(this);
+        }
+        return roundLatency;
+    }
+
+    /**
+     * @return The policy of the opponent model updates, null if every offer is applied at once.
+     */
+    public Group4_UpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    public void setUpdatePolicy(Group4_UpdatePolicy updatePolicy) {
+        this.updatePolicy = updatePolicy;
+    }
+
+    /**
+     * Derives a key of the session from the preference profile, or the domain, and the number of
+     * sessions started before on the same profile. The key does not depend on the sessions on
+     * other profiles, and repeated sessions on a profile get their own streams as long as they
+     * are started in the same order, as in a Genius tournament. Harnesses which run sessions
+     * on a profile in parallel bind them instead.
+     */
+    private static long sessionKey(NegotiationSession session) {
+        String name = session.getUtilitySpace().getFileName();
+        if (name == null) {
+            name = session.getUtilitySpace().getDomain().getName();
+        }
+        if (name == null) {
+            name = "";
+        }
+        int occurrence;
+        synchronized (OCCURRENCES) {
+            occurrence = OCCURRENCES.merge(name, 1, Integer::sum) - 1;
+        }
+        return mix(name.hashCode(), occurrence);
+    }
+
+    /**
+     * Mixes two values into a seed with the SplitMix64 finalizer.
+     */
+    static long mix(long seed, long salt) {
+        long z = seed + 0x9E3779B97F4A7C15L * (salt + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,297 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.analysis.BidPoint;
+import genius.core.analysis.BidSpace;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.Actions;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.NoModel;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Plays bilateral sessions between two BOA agents in the same thread, following the
+ * alternating offers protocol and the order in which the BOA agent of Genius calls its
+ * components. Used to test our agent against the stand-in opponents without Genius.
+ *
+ * Sessions are round based and use the simulated clock, so they do not sleep and the
+ * outcome only depends on the configurations, the domain and the seed.
+ *
+ * Usage: java Group4_SessionRunner [--agent spec] [--opponent spec] [--sessions 1000]
+ *        [--rounds 100] [--issues 4] [--values 5] [--seed 0] [--results results.g4rl]
+ *
+ * With --results, the result of every session is appended to a Group4_ResultsLog.
+ */
+public class Group4_SessionRunner {
+
+    /**
+     * Outcome of a single session.
+     */
+    public static class Result {
+        public boolean agreement;
+        public Bid agreementBid;
+        public double utilityA;
+        public double utilityB;
+        public int rounds;
+        // Distances of the agreement to the Pareto frontier and the Nash point, NaN without agreement
+        public double distancePareto = Double.NaN;
+        public double distanceNash = Double.NaN;
+        // Profiles used by agent A if it is a Group4_BS, and the conditions of its Group4_AS that held on accepting
+        public int offensiveBids;
+        public int cooperativeBids;
+        public int acceptedByNextBid;
+        public int acceptedByTime;
+        public int acceptedByUtility;
+    }
+
+    // Senders of the offers of the two agents
+    static final AgentID AGENT_A = new AgentID("A");
+    static final AgentID AGENT_B = new AgentID("B");
+
+    // Bid spaces are expensive to build, so they are kept for every domain
+    private static final Map<Group4_SyntheticDomain, BidSpace> BID_SPACES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * A BOA agent taking part in a session.
+     */
+    static class Party {
+        final AgentID id;
+        final NegotiationSession session;
+        final OfferingStrategy biddingStrategy;
+        final AcceptanceStrategy acceptanceStrategy;
+        final OpponentModel opponentModel;
+        final OMStrategy omStrategy;
+
+        Party(AgentID id, Group4_AgentConfig config, AdditiveUtilitySpace utilitySpace, DiscreteTimeline timeline,
+              long seed) throws Exception {
+            this.id = id;
+            session = Group4_SyntheticDomain.createSession(utilitySpace, timeline);
+            Group4_SessionContext.bind(session, seed, Group4_Clock.simulated(session));
+            biddingStrategy = config.createBiddingStrategy();
+            acceptanceStrategy = config.createAcceptanceStrategy();
+            opponentModel = config.createOpponentModel();
+            omStrategy = config.createOMStrategy();
+            opponentModel.init(session, config.getParameters("om"));
+            if (omStrategy != null) {
+                omStrategy.init(session, opponentModel, config.getParameters("oms"));
+            }
+            biddingStrategy.init(session, opponentModel, omStrategy, config.getParameters("bs"));
+            acceptanceStrategy.init(session, biddingStrategy, opponentModel, config.getParameters("as"));
+        }
+
+        /**
+         * Determines the next bid and decides on the last offer of the opponent.
+         *
+         * @return The bid to offer, or null if the last offer of the opponent is accepted.
+         */
+        BidDetails act() {
+            BidDetails bid = session.getOwnBidHistory().isEmpty()
+                    ? biddingStrategy.determineOpeningBid()
+                    : biddingStrategy.determineNextBid();
+            if (session.getOpponentBidHistory().getLastBidDetails() != null
+                    && acceptanceStrategy.determineAcceptability() == Actions.Accept) {
+                return null;
+            }
+            session.getOwnBidHistory().add(bid);
+            return bid;
+        }
+
+        /**
+         * Receives an offer of the opponent. A Group4_OpponentRegistry is told who sent it.
+         */
+        void receive(AgentID sender, Bid bid) {
+            double time = session.getTime();
+            Group4_SyntheticDomain.receive(session, bid, time);
+            if (!(opponentModel instanceof NoModel) && (omStrategy == null || omStrategy.canUpdateOM())) {
+                if (opponentModel instanceof Group4_OpponentRegistry) {
+                    ((Group4_OpponentRegistry) opponentModel).updateModel(sender, bid);
+                } else {
+                    opponentModel.updateModel(bid, time);
+                }
+            }
+        }
+
+        void cleanUp() {
+            if (biddingStrategy instanceof Group4_BS) {
+                ((Group4_BS) biddingStrategy).cleanUp();
+            }
+            opponentModel.cleanUp();
+        }
+    }
+
+    /**
+     * Plays a session in which agent A opens.
+     *
+     * @param a configuration of agent A, using profile 0 of the domain.
+     * @param b configuration of agent B, using profile 1 of the domain.
+     * @param domain the domain of the session.
+     * @param rounds the number of rounds, each round being one offer of each agent.
+     * @param seed the seed of the session.
+     * @return The outcome of the session.
+     */
+    public static Result run(Group4_AgentConfig a, Group4_AgentConfig b, Group4_SyntheticDomain domain,
+                             int rounds, long seed) throws Exception {
+        DiscreteTimeline timeline = new DiscreteTimeline(rounds);
+        Party partyA = new Party(AGENT_A, a, domain.createProfile(0), timeline, Group4_SessionContext.mix(seed, 0));
+        Party partyB = new Party(AGENT_B, b, domain.createProfile(1), timeline, Group4_SessionContext.mix(seed, 1));
+        try {
+            Result result = play(partyA, partyB, timeline, rounds);
+            if (result.agreement) {
+                BidSpace bidSpace = bidSpace(domain, partyA, partyB);
+                BidPoint point = new BidPoint(result.agreementBid, result.utilityA, result.utilityB);
+                result.distancePareto = bidSpace.distanceToNearestParetoBid(point);
+                result.distanceNash = bidSpace.getNash().getDistance(point);
+            }
+            count(result, partyA);
+            return result;
+        } finally {
+            partyA.cleanUp();
+            partyB.cleanUp();
+        }
+    }
+
+    /**
+     * Plays a session like run, and returns the offers agent B made, with the time agent A received them.
+     */
+    public static List<BidDetails> offersOfB(Group4_AgentConfig a, Group4_AgentConfig b, Group4_SyntheticDomain domain,
+                                             int rounds, long seed) throws Exception {
+        DiscreteTimeline timeline = new DiscreteTimeline(rounds);
+        Party partyA = new Party(AGENT_A, a, domain.createProfile(0), timeline, Group4_SessionContext.mix(seed, 0));
+        Party partyB = new Party(AGENT_B, b, domain.createProfile(1), timeline, Group4_SessionContext.mix(seed, 1));
+        try {
+            play(partyA, partyB, timeline, rounds);
+            return new ArrayList<>(partyA.session.getOpponentBidHistory().getHistory());
+        } finally {
+            partyA.cleanUp();
+            partyB.cleanUp();
+        }
+    }
+
+    private static BidSpace bidSpace(Group4_SyntheticDomain domain, Party partyA, Party partyB) throws Exception {
+        BidSpace bidSpace = BID_SPACES.get(domain);
+        if (bidSpace == null) {
+            bidSpace = new BidSpace(partyA.session.getUtilitySpace(), partyB.session.getUtilitySpace());
+            BID_SPACES.put(domain, bidSpace);
+        }
+        return bidSpace;
+    }
+
+    private static void count(Result result, Party party) {
+        if (party.biddingStrategy instanceof Group4_BS) {
+            Group4_BS bs = (Group4_BS) party.biddingStrategy;
+            result.offensiveBids = bs.getOffensiveBids();
+            result.cooperativeBids = bs.getCooperativeBids();
+        }
+        if (party.acceptanceStrategy instanceof Group4_AS) {
+            Group4_AS as = (Group4_AS) party.acceptanceStrategy;
+            result.acceptedByNextBid = as.getAcceptedByNextBid();
+            result.acceptedByTime = as.getAcceptedByTime();
+            result.acceptedByUtility = as.getAcceptedByUtility();
+        }
+    }
+
+    static Result play(Party partyA, Party partyB, DiscreteTimeline timeline, int rounds) {
+        Result result = new Result();
+        for (int round = 0; round < rounds; round++) {
+            result.rounds = round + 1;
+            BidDetails offerA = partyA.act();
+            if (offerA == null) {
+                return agree(result, partyA.session.getOpponentBidHistory().getLastBidDetails().getBid(), partyA, partyB);
+            }
+            partyB.receive(partyA.id, offerA.getBid());
+            BidDetails offerB = partyB.act();
+            if (offerB == null) {
+                return agree(result, offerA.getBid(), partyA, partyB);
+            }
+            partyA.receive(partyB.id, offerB.getBid());
+            timeline.increment();
+        }
+        return result;
+    }
+
+    private static Result agree(Result result, Bid bid, Party partyA, Party partyB) {
+        result.agreement = true;
+        result.agreementBid = bid;
+        result.utilityA = partyA.session.getUtilitySpace().getUtility(bid);
+        result.utilityB = partyB.session.getUtilitySpace().getUtility(bid);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String agent = Group4_AgentConfig.GROUP4;
+        String opponent = "bs=Group4_TimeDependentOpponent;as=Group4_StandInAcceptance;om=none";
+        int sessions = 1000;
+        int rounds = 100;
+        int issues = 4;
+        int values = 5;
+        long seed = 0;
+        String results = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--agent":
+                    agent = args[++i];
+                    break;
+                case "--opponent":
+                    opponent = args[++i];
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--issues":
+                    issues = Integer.parseInt(args[++i]);
+                    break;
+                case "--values":
+                    values = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--results":
+                    results = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+        Group4_AgentConfig a = Group4_AgentConfig.parse(agent);
+        Group4_AgentConfig b = Group4_AgentConfig.parse(opponent);
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, seed);
+
+        int agreements = 0;
+        double utility = 0;
+        long start = System.nanoTime();
+        try (Group4_ResultsLog log = results == null ? null : new Group4_ResultsLog(Paths.get(results))) {
+            for (int s = 0; s < sessions; s++) {
+                Result result = run(a, b, domain, rounds, seed + s);
+                if (result.agreement) {
+                    agreements++;
+                    utility += result.utilityA;
+                }
+                if (log != null) {
+                    log.add(agent, opponent, domain.getName(), seed + s, result);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d sessions in %.2f s (%.0f sessions/s), agreement rate %.3f, mean utility %.3f",
+                sessions, seconds, sessions / seconds, (double) agreements / sessions,
+                agreements == 0 ? 0 : utility / agreements));
+    }
+}
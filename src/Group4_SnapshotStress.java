@@ -0,0 +1,208 @@
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import genius.core.Bid;
+import genius.core.boaframework.NegotiationSession;
+
+/**
+ * Concurrency stress test of the snapshots of Group4_OM.
+ *
+ * One thread feeds the model a fixed sequence of random offers while reader threads keep
+ * taking snapshots and checking that every snapshot is exactly the model after some number
+ * of updates: the offer history has one row per update ending with the offer of the last
+ * update, the counts of every issue add up to the number of learned offers, the highest
+ * counts match, the weights sum to one, epochs never go back, and evaluating a bid twice
+ * against one snapshot gives the same result. A torn read breaks one of these.
+ *
+ * Afterwards the model is fed the same offers under an update policy without any CPU budget,
+ * checking that the queue of offers never holds more than Group4_UpdatePolicy.MAX_QUEUE.
+ *
+ * Usage: java Group4_SnapshotStress [--updates 100000] [--readers 4] [--issues 8] [--values 6] [--seed 0]
+ *
+ * Exits with status 1 if any check failed.
+ */
+public class Group4_SnapshotStress {
+
+    public static void main(String[] args) throws Exception {
+        int updates = 100000;
+        int readers = 4;
+        int issues = 8;
+        int values = 6;
+        long seed = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--updates":
+                    updates = Integer.parseInt(args[++i]);
+                    break;
+                case "--readers":
+                    readers = Integer.parseInt(args[++i]);
+                    break;
+                case "--issues":
+                    issues = Integer.parseInt(args[++i]);
+                    break;
+                case "--values":
+                    values = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Group4_SyntheticDomain domain = new Group4_SyntheticDomain(issues, values, seed);
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), updates + 1);
+        Group4_DomainIndex index = Group4_DomainIndex.of(domain.getDomain());
+        Random random = new Random(seed);
+        Bid[] bids = new Bid[updates];
+        int[][] encoded = new int[updates][];
+        for (int i = 0; i < updates; i++) {
+            bids[i] = domain.getDomain().getRandomBid(random);
+            encoded[i] = index.encode(bids[i]);
+        }
+        Bid probe = domain.getDomain().getRandomBid(random);
+
+        Group4_OM model = new Group4_OM();
+        model.init(session, new HashMap<>());
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong checked = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        int total = updates;
+        Thread[] threads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            threads[r] = new Thread(() -> {
+                long lastEpoch = -1;
+                while (!done.get()) {
+                    Group4_OM.Snapshot snapshot = model.getSnapshot();
+                    String failure = check(snapshot, lastEpoch, index, encoded, total, probe);
+                    if (failure != null) {
+                        if (failures.incrementAndGet() <= 10) {
+                            System.err.println("Epoch " + snapshot.getEpoch() + ": " + failure);
+                        }
+                    }
+                    lastEpoch = snapshot.getEpoch();
+                    checked.incrementAndGet();
+                }
+            }, "Group4_SnapshotStress reader " + r);
+            threads[r].start();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            double time = time(i + 1, updates);
+            Group4_SyntheticDomain.receive(session, bids[i], time);
+            model.updateModel(bids[i], time);
+        }
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        String last = check(model.getSnapshot(), -1, index, encoded, total, probe);
+        if (last != null) {
+            failures.incrementAndGet();
+            System.err.println("Final snapshot: " + last);
+        }
+        String starved = checkStarvedBudget(domain, bids);
+        if (starved != null) {
+            failures.incrementAndGet();
+            System.err.println("Starved budget: " + starved);
+        }
+        System.out.println(String.format(Locale.ROOT, "%d updates in %.2f s, %d snapshots checked by %d readers, %d failures",
+                updates, (System.nanoTime() - start) / 1e9, checked.get(), readers, failures.get()));
+        System.exit(failures.get() == 0 ? 0 : 1);
+    }
+
+    private static double time(int update, int updates) {
+        return (double) update / updates;
+    }
+
+    /**
+     * Feeds the offers to a model whose update policy has a budget of zero, so only the offers
+     * above the maximum queue length are ever applied.
+     *
+     * @return A description of the failure, or null if the queue stayed bounded.
+     */
+    static String checkStarvedBudget(Group4_SyntheticDomain domain, Bid[] bids) throws Exception {
+        NegotiationSession session = Group4_SyntheticDomain.createSession(domain.createProfile(0), bids.length + 1);
+        Group4_SessionContext context = Group4_SessionContext.bind(session, 0, Group4_Clock.simulated(session));
+        context.setUpdatePolicy(new Group4_UpdatePolicy(Group4_UpdatePolicy.Mode.BUDGET, 1, 0, 0, 0, false));
+        Group4_OM model = new Group4_OM();
+        model.init(session, new HashMap<>());
+        try {
+            for (int i = 0; i < bids.length; i++) {
+                double time = time(i + 1, bids.length);
+                Group4_SyntheticDomain.receive(session, bids[i], time);
+                model.updateModel(bids[i], time);
+                if (model.getPendingCount() > Group4_UpdatePolicy.MAX_QUEUE) {
+                    return model.getPendingCount() + " offers queued after " + (i + 1) + " offers";
+                }
+            }
+            long applied = model.getSnapshot().getEpoch();
+            if (bids.length > Group4_UpdatePolicy.MAX_QUEUE && applied == 0) {
+                return "no offer was applied";
+            }
+            return null;
+        } finally {
+            model.cleanUp();
+        }
+    }
+
+    /**
+     * @return A description of the first check the snapshot fails, or null if it passes all checks.
+     */
+    static String check(Group4_OM.Snapshot snapshot, long lastEpoch, Group4_DomainIndex index, int[][] encoded,
+                        int updates, Bid probe) {
+        long epoch = snapshot.getEpoch();
+        if (epoch < lastEpoch) {
+            return "epoch went back from " + lastEpoch;
+        }
+        Group4_OfferHistory.View offers = snapshot.getOffers();
+        if (offers.size() != epoch) {
+            return "history has " + offers.size() + " offers";
+        }
+        if (epoch > 0) {
+            int row = offers.size() - 1;
+            for (int i = 0; i < index.getIssueCount(); i++) {
+                if (offers.getValue(row, i) != encoded[(int) epoch - 1][i]) {
+                    return "last offer differs at issue " + i;
+                }
+            }
+            if (offers.getTime(row) != (float) time((int) epoch, updates)) {
+                return "last offer has time " + offers.getTime(row);
+            }
+        }
+        // Every offer but the first adds one to a value of every issue
+        long learned = Math.max(0, epoch - 1);
+        double weights = 0;
+        for (int i = 0; i < index.getIssueCount(); i++) {
+            // Without a decay the counts are whole numbers, which doubles add up exactly
+            double sum = 0;
+            double max = 0;
+            for (int v = 0; v < index.getValueCount(i); v++) {
+                double count = snapshot.getCount(index.getOffset(i) + v);
+                sum += count;
+                max = Math.max(max, count);
+            }
+            if (sum != index.getValueCount(i) + learned) {
+                return "counts of issue " + i + " add up to " + sum;
+            }
+            if (max != snapshot.getMaxCount(i)) {
+                return "highest count of issue " + i + " is " + snapshot.getMaxCount(i) + " instead of " + max;
+            }
+            weights += snapshot.getWeight(i);
+        }
+        if (Math.abs(weights - 1) > 1e-9) {
+            return "weights add up to " + weights;
+        }
+        if (snapshot.getBidEvaluation(probe) != snapshot.getBidEvaluation(probe)) {
+            return "evaluation changed";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.Actions;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * Acceptance strategy of the stand-in opponents. Accepts when the opponent's offer is at
+ * least as good as the next own bid (AC_next), or at least minUtility after time t.
+ *
+ * Default settings: t = 0.99; minUtility = 0.5
+ */
+public class Group4_StandInAcceptance extends AcceptanceStrategy {
+
+    private double t;
+    private double minUtility;
+    private Group4_SessionContext context;
+
+    @Override
+    public void init(NegotiationSession negoSession, OfferingStrategy strat,
+                     OpponentModel opponentModel, Map<String, Double> parameters) throws Exception {
+        this.negotiationSession = negoSession;
+        this.offeringStrategy = strat;
+        this.context = Group4_SessionContext.of(negoSession, parameters);
+        t = parameters != null && parameters.get("t") != null ? parameters.get("t") : 0.99;
+        minUtility = parameters != null && parameters.get("minUtility") != null ? parameters.get("minUtility") : 0.5;
+    }
+
+    @Override
+    public Actions determineAcceptability() {
+        BidDetails last = negotiationSession.getOpponentBidHistory().getLastBidDetails();
+        if (last == null) {
+            return Actions.Reject;
+        }
+        double lastUtil = last.getMyUndiscountedUtil();
+        if (lastUtil >= offeringStrategy.getNextBid().getMyUndiscountedUtil()
+                || (context.getTime() >= t && lastUtil >= minUtility)) {
+            return Actions.Accept;
+        }
+        return Actions.Reject;
+    }
+
+    @Override
+    public Set<BOAparameter> getParameterSpec() {
+        Set<BOAparameter> set = new HashSet<BOAparameter>();
+        set.add(new BOAparameter("t", 0.99, "Time after which any offer of at least minUtility is accepted"));
+        set.add(new BOAparameter("minUtility", 0.5, "Minimum utility accepted after time t"));
+        return set;
+    }
+
+    @Override
+    public String getName() {
+        return "Group4 - Stand-in Acceptance";
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.SortedOutcomeSpace;
+
+/**
+ * Base of the local stand-in opponents, used to test the Group4 components without the
+ * agents of Genius.
+ *
+ * Stand-ins are plain BOA offering strategies, so they run in the same harness as our own
+ * agent. They are kept cheap: the outcome space comes from Group4_StartupCache, so it is
+ * built once per profile, and bids are looked up by utility instead of scanned.
+ */
+public abstract class Group4_StandInStrategy extends OfferingStrategy {
+
+    /** Outcome space of the own profile */
+    protected SortedOutcomeSpace outcomeSpace;
+
+    /** Randomness and clock of the session */
+    protected Group4_SessionContext context;
+
+    /** Random stream of this stand-in */
+    protected SplittableRandom random;
+
+    @Override
+    public void init(NegotiationSession negoSession, OpponentModel model, OMStrategy oms,
+                     Map<String, Double> parameters) {
+        this.negotiationSession = negoSession;
+        this.opponentModel = model;
+        this.omStrategy = oms;
+        this.context = Group4_SessionContext.of(negoSession, parameters);
+        this.random = context.random(getName());
+        this.outcomeSpace = Group4_StartupCache.outcomeSpace(negoSession.getUtilitySpace());
+        negoSession.setOutcomeSpace(outcomeSpace);
+        init(parameters);
+    }
+
+    /**
+     * Assigns the parameters of the stand-in.
+     */
+    protected abstract void init(Map<String, Double> parameters);
+
+    /**
+     * @return The next bid of the stand-in.
+     */
+    protected abstract BidDetails chooseBid();
+
+    @Override
+    public BidDetails determineOpeningBid() {
+        return determineNextBid();
+    }
+
+    @Override
+    public BidDetails determineNextBid() {
+        nextBid = chooseBid();
+        return nextBid;
+    }
+
+    /**
+     * @return The parameter, or the default value if it is not given.
+     */
+    protected static double parameter(Map<String, Double> parameters, String name, double defaultValue) {
+        if (parameters != null && parameters.get(name) != null) {
+            return parameters.get(name);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return A random bid with an own utility of at least the given utility.
+     */
+    protected BidDetails randomBidAbove(double utility) {
+        List<BidDetails> outcomes = outcomeSpace.getAllOutcomes();
+        // The outcomes are sorted from high to low utility
+        int low = 0;
+        int high = outcomes.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (outcomes.get(middle).getMyUndiscountedUtil() >= utility) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return outcomes.get(random.nextInt(Math.max(1, low)));
+    }
+}
@@ -0,0 +1,93 @@
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Structures which are expensive to build at the start of a session and only depend on the
+ * domain and preference profile, kept once per JVM.
+ *
+ * In a tournament the same profiles come back in many sessions, so after the first session
+ * on a profile the bidding strategy can offer its first bid without enumerating the outcome
+ * space again. The outcome spaces are held by soft references, so they are dropped again
+ * when the heap runs low. Profiles without a file name are never cached.
+ *
+ * A cached outcome space is shared by every session and thread of the JVM, so it may not be
+ * changed: its list of outcomes and the BidDetails in it are read only. getAllOutcomes of a
+ * cached space returns an unmodifiable view, so sorting or changing the list fails at once;
+ * a component that needs another order sorts a copy.
+ */
+public final class Group4_StartupCache {
+
+    private static final Map<String, SoftReference<SortedOutcomeSpace>> OUTCOME_SPACES = new ConcurrentHashMap<>();
+
+    private Group4_StartupCache() {
+    }
+
+    /**
+     * @param utilitySpace the preference profile.
+     * @return The sorted outcome space of the profile, built on first use. Shared, see the class comment.
+     */
+    public static SortedOutcomeSpace outcomeSpace(AbstractUtilitySpace utilitySpace) {
+        String key = key(utilitySpace);
+        if (key == null) {
+            return new SortedOutcomeSpace(utilitySpace);
+        }
+        SoftReference<SortedOutcomeSpace> reference = OUTCOME_SPACES.get(key);
+        SortedOutcomeSpace outcomeSpace = reference == null ? null : reference.get();
+        if (outcomeSpace == null) {
+            outcomeSpace = new SharedOutcomeSpace(utilitySpace);
+            OUTCOME_SPACES.put(key, new SoftReference<>(outcomeSpace));
+        }
+        return outcomeSpace;
+    }
+
+    /**
+     * Builds the tables of a known profile ahead of time, for example when the JVM starts.
+     *
+     * @param utilitySpace the preference profile.
+     */
+    public static void preload(AbstractUtilitySpace utilitySpace) {
+        Group4_DomainIndex.of(utilitySpace.getDomain());
+        outcomeSpace(utilitySpace);
+    }
+
+    /**
+     * Drops all cached structures.
+     */
+    public static void clear() {
+        OUTCOME_SPACES.clear();
+    }
+
+    private static String key(AbstractUtilitySpace utilitySpace) {
+        String fileName = utilitySpace.getFileName();
+        if (fileName == null) {
+            return null;
+        }
+        return utilitySpace.getDomain().getName() + "|" + fileName;
+    }
+
+    /**
+     * Sorted outcome space whose list of outcomes is handed out as an unmodifiable view once
+     * it is built.
+     */
+    private static final class SharedOutcomeSpace extends SortedOutcomeSpace {
+        // Null while the constructor of SortedOutcomeSpace builds and sorts the list
+        private final List<BidDetails> outcomes;
+
+        SharedOutcomeSpace(AbstractUtilitySpace utilitySpace) {
+            super(utilitySpace);
+            outcomes = Collections.unmodifiableList(super.getAllOutcomes());
+        }
+
+        @Override
+        public List<BidDetails> getAllOutcomes() {
+            return outcomes == null ? super.getAllOutcomes() : outcomes;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Generates discrete domains and preference profiles for offline runs of the Group4
+ * components, without the domain repository of Genius.
+ *
+ * The domain and profiles are written as Genius XML files to a temporary directory and
+ * loaded from there, so they behave exactly like the domains of a tournament. Everything
+ * is derived from the seed, so the same arguments always give the same domain and profiles.
+ */
+public class Group4_SyntheticDomain {
+
+    private final int issues;
+    private final int valuesPerIssue;
+    private final long seed;
+    private final File directory;
+    private final Domain domain;
+
+    // Loaded profiles, so that sessions do not parse them again
+    private final Map<Integer, AdditiveUtilitySpace> profiles = new HashMap<>();
+
+    /**
+     * @param issues the number of issues.
+     * @param valuesPerIssue the number of values of every issue.
+     * @param seed the seed of the domain and its profiles.
+     */
+    public Group4_SyntheticDomain(int issues, int valuesPerIssue, long seed) throws Exception {
+        this.issues = issues;
+        this.valuesPerIssue = valuesPerIssue;
+        this.seed = seed;
+        this.directory = Files.createTempDirectory("group4-domain").toFile();
+        this.directory.deleteOnExit();
+        File domainFile = new File(directory, getName() + ".xml");
+        domainFile.deleteOnExit();
+        writeDomain(domainFile);
+        this.domain = new DomainImpl(domainFile);
+    }
+
+    /**
+     * @return The name of the domain, which identifies its shape and seed.
+     */
+    public String getName() {
+        return "synthetic_" + issues + "x" + valuesPerIssue + "_" + seed;
+    }
+
+    public Domain getDomain() {
+        return domain;
+    }
+
+    public int getIssues() {
+        return issues;
+    }
+
+    public int getValuesPerIssue() {
+        return valuesPerIssue;
+    }
+
+    /**
+     * Creates a preference profile with random issue weights and value evaluations. A profile is
+     * loaded once and the same utility space is returned afterwards, so it is shared by all
+     * sessions on this domain and may not be modified.
+     *
+     * @param profile number of the profile, different numbers give different preferences.
+     * @return The utility space of the profile.
+     */
+    public synchronized AdditiveUtilitySpace createProfile(int profile) throws Exception {
+        AdditiveUtilitySpace utilitySpace = profiles.get(profile);
+        if (utilitySpace == null) {
+            utilitySpace = loadProfile(profile);
+            profiles.put(profile, utilitySpace);
+        }
+        return utilitySpace;
+    }
+
+    private AdditiveUtilitySpace loadProfile(int profile) throws Exception {
+        File profileFile = new File(directory, getName() + "_profile" + profile + ".xml");
+        if (!profileFile.exists()) {
+            profileFile.deleteOnExit();
+            writeProfile(profileFile, new Random(seed * 31 + profile));
+        }
+        return new AdditiveUtilitySpace(domain, profileFile.getPath());
+    }
+
+    /**
+     * Creates a negotiation session with a round based timeline.
+     *
+     * @param utilitySpace own utility space of the session.
+     * @param rounds the number of rounds.
+     * @return The negotiation session.
+     */
+    public static NegotiationSession createSession(AdditiveUtilitySpace utilitySpace, int rounds) {
+        return createSession(utilitySpace, new DiscreteTimeline(rounds));
+    }
+
+    /**
+     * Creates a negotiation session on a given timeline, which can be shared by both parties.
+     *
+     * @param utilitySpace own utility space of the session.
+     * @param timeline the timeline of the negotiation.
+     * @return The negotiation session.
+     */
+    public static NegotiationSession createSession(AdditiveUtilitySpace utilitySpace, TimeLineInfo timeline) {
+        return new NegotiationSession(null, utilitySpace, timeline);
+    }
+
+    /**
+     * Adds a bid to the opponent history of the session, as the BOA agent does on receiving it.
+     *
+     * @return The details of the added bid.
+     */
+    public static BidDetails receive(NegotiationSession session, Bid bid, double time) {
+        BidDetails details = new BidDetails(bid, session.getUtilitySpace().getUtility(bid), time);
+        session.getOpponentBidHistory().add(details);
+        return details;
+    }
+
+    private void writeDomain(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("<negotiation_template>");
+            out.println("<utility_space number_of_issues=\"" + issues + "\">");
+            out.println("<objective description=\"\" etype=\"objective\" index=\"0\" name=\"root\" type=\"objective\">");
+            for (int i = 1; i <= issues; i++) {
+                out.println("<issue etype=\"discrete\" index=\"" + i + "\" name=\"issue" + i
+                        + "\" type=\"discrete\" vtype=\"discrete\">");
+                for (int v = 1; v <= valuesPerIssue; v++) {
+                    out.println("<item index=\"" + v + "\" value=\"v" + v + "\" />");
+                }
+                out.println("</issue>");
+            }
+            out.println("</objective>");
+            out.println("</utility_space>");
+            out.println("</negotiation_template>");
+        }
+    }
+
+    private void writeProfile(File file, Random random) throws IOException {
+        double[] weights = new double[issues];
+        double total = 0;
+        for (int i = 0; i < issues; i++) {
+            weights[i] = 0.1 + random.nextDouble();
+            total += weights[i];
+        }
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("<utility_space>");
+            out.println("<objective description=\"\" etype=\"objective\" index=\"0\" name=\"root\" type=\"objective\">");
+            for (int i = 1; i <= issues; i++) {
+                out.println("<issue etype=\"discrete\" index=\"" + i + "\" name=\"issue" + i
+                        + "\" type=\"discrete\" vtype=\"discrete\">");
+                for (int v = 1; v <= valuesPerIssue; v++) {
+                    out.println("<item index=\"" + v + "\" value=\"v" + v + "\" evaluation=\""
+                            + (1 + random.nextInt(10)) + "\" />");
+                }
+                out.println("</issue>");
+                out.println("<weight index=\"" + i + "\" value=\"" + weights[i - 1] / total + "\" />");
+            }
+            out.println("</objective>");
+            out.println("</utility_space>");
+        }
+    }
+}
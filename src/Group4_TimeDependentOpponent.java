@@ -0,0 +1,49 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Time-dependent stand-in opponent. The target utility follows
+ * minUtility + (1 - minUtility) * (1 - f(t)), with f(t) = k + (1 - k) * t^(1/e).
+ * With e below one it is a Boulware opponent that concedes late, with e above one a
+ * conceder that concedes early.
+ *
+ * Default settings: e = 0.2; k = 0; minUtility = 0.5
+ */
+public class Group4_TimeDependentOpponent extends Group4_StandInStrategy {
+
+    private double e;
+    private double k;
+    private double minUtility;
+
+    @Override
+    protected void init(Map<String, Double> parameters) {
+        e = parameter(parameters, "e", 0.2);
+        k = parameter(parameters, "k", 0.0);
+        minUtility = parameter(parameters, "minUtility", 0.5);
+    }
+
+    @Override
+    protected BidDetails chooseBid() {
+        double time = context.getTime();
+        double f = k + (1 - k) * Math.pow(time, 1.0 / e);
+        return outcomeSpace.getBidNearUtility(minUtility + (1 - minUtility) * (1 - f));
+    }
+
+    @Override
+    public Set<BOAparameter> getParameterSpec() {
+        Set<BOAparameter> set = new HashSet<BOAparameter>();
+        set.add(new BOAparameter("e", 0.2, "Concession factor, below 1 is Boulware and above 1 is conceder"));
+        set.add(new BOAparameter("k", 0.0, "Initial concession"));
+        set.add(new BOAparameter("minUtility", 0.5, "Minimum utility"));
+        return set;
+    }
+
+    @Override
+    public String getName() {
+        return "Group4 - Stand-in Time Dependent";
+    }
+}
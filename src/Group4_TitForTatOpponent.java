@@ -0,0 +1,50 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.BidHistory;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Relative tit-for-tat stand-in opponent. It concedes as much as the opponent conceded,
+ * measured in its own utility of the opponent's offers since the first offer, times a factor.
+ *
+ * Default settings: factor = 1.0; minUtility = 0.5
+ */
+public class Group4_TitForTatOpponent extends Group4_StandInStrategy {
+
+    private double factor;
+    private double minUtility;
+
+    @Override
+    protected void init(Map<String, Double> parameters) {
+        factor = parameter(parameters, "factor", 1.0);
+        minUtility = parameter(parameters, "minUtility", 0.5);
+    }
+
+    @Override
+    protected BidDetails chooseBid() {
+        BidHistory history = negotiationSession.getOpponentBidHistory();
+        double concession = 0;
+        if (history.size() > 1) {
+            double first = history.getHistory().get(0).getMyUndiscountedUtil();
+            double last = history.getLastBidDetails().getMyUndiscountedUtil();
+            concession = Math.max(0, last - first) * factor;
+        }
+        return outcomeSpace.getBidNearUtility(Math.max(minUtility, 1 - concession));
+    }
+
+    @Override
+    public Set<BOAparameter> getParameterSpec() {
+        Set<BOAparameter> set = new HashSet<BOAparameter>();
+        set.add(new BOAparameter("factor", 1.0, "Part of the opponent's concession that is returned"));
+        set.add(new BOAparameter("minUtility", 0.5, "Minimum utility"));
+        return set;
+    }
+
+    @Override
+    public String getName() {
+        return "Group4 - Stand-in Tit for Tat";
+    }
+}
@@ -0,0 +1,472 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a tournament of agent configurations against opponents on synthetic domains, spread
+ * over worker JVMs which share a work queue of files.
+ *
+ * The tournament (agents x opponents x domains x seeds) is planned as shards of sessions,
+ * one file per shard in the directory pending of the queue. A worker leases a shard by moving
+ * it to leased, which is atomic on a local or shared filesystem, so only one worker gets it.
+ * While it runs the shard the worker touches the lease every few seconds; a lease which was
+ * not touched for longer than the lease time belongs to a crashed worker and is moved back to
+ * pending by the next worker that looks. Results are written to a temporary file and renamed
+ * to results/shard.g4rl when complete, after which the shard is moved to done. Sessions are
+ * deterministic, so a shard which runs twice gives the same results file.
+ *
+ * Usage:
+ *   java Group4_TournamentRunner plan --queue dir [tournament options]
+ *   java Group4_TournamentRunner worker --queue dir [--lease 60] [--id name]
+ *   java Group4_TournamentRunner merge --queue dir --out results.g4rl
+ *   java Group4_TournamentRunner run --queue dir --workers 4 --out results.g4rl [--jvm -Xmx1g] [tournament options]
+ *
+ * Tournament options: --agent spec (repeated, default our agent), --opponent spec (repeated),
+ * --domain IxV (repeated, default 4x5), --domain-seed 0, --seeds 100, --first-seed 0,
+ * --rounds 100, --shard-size 50. The specs are Group4_AgentConfig lines.
+ *
+ * The run mode plans the tournament, starts the workers as child processes, waits for them and
+ * merges the results. The workers of other hosts can join by running the worker mode on the same
+ * queue directory; the clocks of the hosts should agree to well within the lease time.
+ */
+public class Group4_TournamentRunner {
+
+    static final String PENDING = "pending";
+    static final String LEASED = "leased";
+    static final String DONE = "done";
+    static final String RESULTS = "results";
+    static final String SHARD_SUFFIX = ".shard";
+    static final String RESULTS_SUFFIX = ".g4rl";
+
+    /** Default opponent of the tournament */
+    static final String DEFAULT_OPPONENT = "bs=Group4_TimeDependentOpponent;as=Group4_StandInAcceptance;om=none";
+
+    /** Time between polls of a worker which waits for leases of other workers */
+    static final long POLL_MILLIS = 1000;
+
+    /** Whether the warning about a queue without atomic moves was printed */
+    private static volatile boolean nonAtomicWarned;
+
+    /** Whether moves are tried atomically first, turned off by Group4_QueueCheck to check the fallback */
+    static volatile boolean atomicMoves = true;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java Group4_TournamentRunner plan|worker|merge|run --queue dir [options]");
+            System.exit(2);
+        }
+        Map<String, List<String>> options = parseOptions(args);
+        Path queue = Paths.get(option(options, "queue", "group4-queue"));
+        switch (args[0]) {
+            case "plan":
+                System.out.println(plan(queue, options) + " shards planned in " + queue);
+                break;
+            case "worker":
+                worker(queue, Long.parseLong(option(options, "lease", "60")) * 1000,
+                        option(options, "id", defaultWorkerId()));
+                break;
+            case "merge":
+                System.exit(merge(queue, Paths.get(option(options, "out", "results" + RESULTS_SUFFIX))) ? 0 : 1);
+                break;
+            case "run":
+                System.exit(run(queue, options) ? 0 : 1);
+                break;
+            default:
+                System.err.println("Unknown mode " + args[0]);
+                System.exit(2);
+        }
+    }
+
+    /**
+     * Writes a shard file to pending for every agent, opponent, domain and range of seeds.
+     *
+     * @return The number of planned shards.
+     */
+    static int plan(Path queue, Map<String, List<String>> options) throws IOException {
+        if (hasShards(queue)) {
+            throw new IllegalStateException("The queue " + queue + " already holds a tournament");
+        }
+        for (String directory : new String[] {PENDING, LEASED, DONE, RESULTS}) {
+            Files.createDirectories(queue.resolve(directory));
+        }
+        List<String> agents = options.getOrDefault("agent", listOf(Group4_AgentConfig.GROUP4));
+        List<String> opponents = options.getOrDefault("opponent", listOf(DEFAULT_OPPONENT));
+        List<String> domains = options.getOrDefault("domain", listOf("4x5"));
+        long domainSeed = Long.parseLong(option(options, "domain-seed", "0"));
+        int seeds = Integer.parseInt(option(options, "seeds", "100"));
+        long firstSeed = Long.parseLong(option(options, "first-seed", "0"));
+        int rounds = Integer.parseInt(option(options, "rounds", "100"));
+        int shardSize = Integer.parseInt(option(options, "shard-size", "50"));
+        for (String spec : agents) {
+            Group4_AgentConfig.parse(spec);
+        }
+        for (String spec : opponents) {
+            Group4_AgentConfig.parse(spec);
+        }
+
+        int shard = 0;
+        for (String agent : agents) {
+            for (String opponent : opponents) {
+                for (String domain : domains) {
+                    String[] shape = domain.toLowerCase(Locale.ROOT).split("x");
+                    if (shape.length != 2) {
+                        throw new IllegalArgumentException("Domain should be given as issues x values, like 4x5: " + domain);
+                    }
+                    for (int from = 0; from < seeds; from += shardSize) {
+                        Properties task = new Properties();
+                        task.setProperty("agent", agent);
+                        task.setProperty("opponent", opponent);
+                        task.setProperty("issues", shape[0]);
+                        task.setProperty("values", shape[1]);
+                        task.setProperty("domainSeed", Long.toString(domainSeed));
+                        task.setProperty("rounds", Integer.toString(rounds));
+                        task.setProperty("firstSeed", Long.toString(firstSeed + from));
+                        task.setProperty("sessions", Integer.toString(Math.min(shardSize, seeds - from)));
+                        String name = String.format(Locale.ROOT, "shard-%06d", shard++);
+                        // Written next to the queue and moved in, so workers never see a partial shard
+                        Path temporary = queue.resolve(name + SHARD_SUFFIX + ".tmp");
+                        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                            task.store(writer, null);
+                        }
+                        move(temporary, queue.resolve(PENDING).resolve(name + SHARD_SUFFIX));
+                    }
+                }
+            }
+        }
+        return shard;
+    }
+
+    /**
+     * Leases and runs shards until none are pending or leased by other workers.
+     */
+    static void worker(Path queue, long leaseMillis, String workerId) throws Exception {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Group4_TournamentRunner heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Group4_SyntheticDomain> domains = new HashMap<>();
+        int shards = 0;
+        long sessions = 0;
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                reclaimExpired(queue, leaseMillis);
+                Path lease = lease(queue);
+                if (lease == null) {
+                    if (isEmpty(queue.resolve(LEASED))) {
+                        break;
+                    }
+                    // Other workers are busy, one of them may crash and leave its shard behind
+                    Thread.sleep(POLL_MILLIS);
+                    continue;
+                }
+                Path leased = lease;
+                long period = Math.max(1, leaseMillis / 4);
+                ScheduledFuture<?> touching = heartbeat.scheduleAtFixedRate(() -> {
+                    try {
+                        Files.setLastModifiedTime(leased, FileTime.fromMillis(System.currentTimeMillis()));
+                    } catch (IOException e) {
+                        // The lease was reclaimed, the results of this run are the same as those of the new one
+                    }
+                }, period, period, TimeUnit.MILLISECONDS);
+                try {
+                    sessions += runShard(queue, leased, domains, workerId);
+                    shards++;
+                } finally {
+                    touching.cancel(false);
+                }
+                try {
+                    move(leased, queue.resolve(DONE).resolve(leased.getFileName()));
+                } catch (NoSuchFileException e) {
+                    // The lease expired and the shard was moved back; a worker which takes it finds the results
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "Worker %s ran %d shards with %d sessions in %.1f s",
+                workerId, shards, sessions, seconds));
+    }
+
+    /**
+     * Runs the sessions of a leased shard, unless its results already exist.
+     *
+     * @return The number of sessions that were run.
+     */
+    static int runShard(Path queue, Path leased, Map<String, Group4_SyntheticDomain> domains, String workerId)
+            throws Exception {
+        String name = shardName(leased);
+        Path results = queue.resolve(RESULTS).resolve(name + RESULTS_SUFFIX);
+        if (Files.exists(results)) {
+            return 0;
+        }
+        Properties task = new Properties();
+        try (Reader reader = Files.newBufferedReader(leased, StandardCharsets.UTF_8)) {
+            task.load(reader);
+        }
+        String agent = task.getProperty("agent");
+        String opponent = task.getProperty("opponent");
+        int issues = Integer.parseInt(task.getProperty("issues"));
+        int values = Integer.parseInt(task.getProperty("values"));
+        long domainSeed = Long.parseLong(task.getProperty("domainSeed"));
+        int rounds = Integer.parseInt(task.getProperty("rounds"));
+        long firstSeed = Long.parseLong(task.getProperty("firstSeed"));
+        int sessions = Integer.parseInt(task.getProperty("sessions"));
+
+        String domainKey = issues + "x" + values + "_" + domainSeed;
+        Group4_SyntheticDomain domain = domains.get(domainKey);
+        if (domain == null) {
+            domain = new Group4_SyntheticDomain(issues, values, domainSeed);
+            domains.put(domainKey, domain);
+        }
+        Group4_AgentConfig a = Group4_AgentConfig.parse(agent);
+        Group4_AgentConfig b = Group4_AgentConfig.parse(opponent);
+
+        // Per worker, so that two workers which run the same shard do not write into one file
+        Path temporary = queue.resolve(RESULTS).resolve(name + "." + workerId + RESULTS_SUFFIX + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (Group4_ResultsLog log = new Group4_ResultsLog(temporary)) {
+            for (int s = 0; s < sessions; s++) {
+                long seed = firstSeed + s;
+                log.add(agent, opponent, domain.getName(), seed, Group4_SessionRunner.run(a, b, domain, rounds, seed));
+            }
+        }
+        move(temporary, results);
+        return sessions;
+    }
+
+    /**
+     * Moves the first pending shard that no other worker took first to leased.
+     *
+     * @return The leased shard, or null if no shard is pending.
+     */
+    static Path lease(Path queue) throws IOException {
+        for (Path pending : list(queue.resolve(PENDING))) {
+            Path leased = queue.resolve(LEASED).resolve(pending.getFileName());
+            try {
+                // The lease time starts now, not when the shard was planned. The shard is touched
+                // before the move, as a worker that sees it in leased with the time of planning
+                // would take it for an expired lease and move it back.
+                Files.setLastModifiedTime(pending, FileTime.fromMillis(System.currentTimeMillis()));
+                move(pending, leased);
+                return leased;
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Another worker was first
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves leases which were not touched within the lease time back to pending.
+     */
+    static void reclaimExpired(Path queue, long leaseMillis) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Path leased : list(queue.resolve(LEASED))) {
+            try {
+                if (now - Files.getLastModifiedTime(leased).toMillis() > leaseMillis) {
+                    move(leased, queue.resolve(PENDING).resolve(leased.getFileName()));
+                    System.err.println("Reclaimed expired lease " + leased.getFileName());
+                }
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Finished or reclaimed by another worker in the meantime
+            }
+        }
+    }
+
+    /**
+     * Copies the results of all shards into one log.
+     *
+     * @return If all shards are done.
+     */
+    static boolean merge(Path queue, Path out) throws IOException {
+        List<Path> results = new ArrayList<>();
+        for (Path file : list(queue.resolve(RESULTS))) {
+            if (file.getFileName().toString().endsWith(RESULTS_SUFFIX)) {
+                results.add(file);
+            }
+        }
+        long sessions = 0;
+        Files.deleteIfExists(out);
+        try (Group4_ResultsLog log = new Group4_ResultsLog(out)) {
+            long[] count = {0};
+            for (Path file : results) {
+                Group4_ResultsReader.forEachRow(file, (config, opponent, domain, seed, result) -> {
+                    log.add(config, opponent, domain, seed, result);
+                    count[0]++;
+                });
+            }
+            sessions = count[0];
+        }
+        int pending = list(queue.resolve(PENDING)).size();
+        int leased = list(queue.resolve(LEASED)).size();
+        System.out.println(String.format(Locale.ROOT, "Merged %d sessions of %d shards into %s, %d shards pending and %d leased",
+                sessions, results.size(), out, pending, leased));
+        return pending == 0 && leased == 0;
+    }
+
+    /**
+     * Plans the tournament, runs it on child worker processes and merges the results.
+     *
+     * @return If all shards are done.
+     */
+    static boolean run(Path queue, Map<String, List<String>> options) throws Exception {
+        if (hasShards(queue)) {
+            System.out.println("Resuming the tournament in " + queue);
+        } else {
+            System.out.println(plan(queue, options) + " shards planned in " + queue);
+        }
+        int workers = Integer.parseInt(option(options, "workers",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        String lease = option(options, "lease", "60");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<Process> processes = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(options.getOrDefault("jvm", new ArrayList<>()));
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Group4_TournamentRunner.class.getName());
+            command.add("worker");
+            command.add("--queue");
+            command.add(queue.toString());
+            command.add("--lease");
+            command.add(lease);
+            command.add("--id");
+            command.add(defaultWorkerId() + "-" + w);
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+        }
+        for (Process process : processes) {
+            int status = process.waitFor();
+            if (status != 0) {
+                System.err.println("A worker exited with status " + status + ", its shard is taken over once its lease expires");
+            }
+        }
+        return merge(queue, Paths.get(option(options, "out", "results" + RESULTS_SUFFIX)));
+    }
+
+    /**
+     * Moves a file atomically. The move fails if the source is gone, which is how workers find
+     * out that another worker was first. Every shard file is in one directory at a time.
+     *
+     * Where the filesystem cannot move atomically the file is moved as a copy and a delete, and
+     * two workers may then both lease a shard. The results stay correct, as sessions are
+     * deterministic and the results file is replaced as a whole, but the shard runs twice.
+     * An existing target is replaced in that case too, so a shard which is run again, or by
+     * two workers, overwrites its results and its file in done.
+     */
+    static void move(Path from, Path to) throws IOException {
+        try {
+            if (!atomicMoves) {
+                throw new AtomicMoveNotSupportedException(from.toString(), to.toString(), "disabled");
+            }
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!nonAtomicWarned) {
+                nonAtomicWarned = true;
+                System.err.println("The queue does not support atomic moves, shards may be run by more than one worker");
+            }
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String shardName(Path shard) {
+        String name = shard.getFileName().toString();
+        return name.endsWith(SHARD_SUFFIX) ? name.substring(0, name.length() - SHARD_SUFFIX.length()) : name;
+    }
+
+    /**
+     * @return The files of the directory in name order, or none if it does not exist.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (!file.getFileName().toString().endsWith(".tmp")) {
+                    files.add(file);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @return If a tournament was planned in the queue already.
+     */
+    static boolean hasShards(Path queue) throws IOException {
+        return !isEmpty(queue.resolve(PENDING)) || !isEmpty(queue.resolve(LEASED)) || !isEmpty(queue.resolve(DONE));
+    }
+
+    static boolean isEmpty(Path directory) throws IOException {
+        return list(directory).isEmpty();
+    }
+
+    static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        // The name of the runtime is pid@host on the usual JVMs
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        return (host + "-" + pid).replace(File.separatorChar, '_');
+    }
+
+    /**
+     * Parses options of the form --name value, where options may be repeated.
+     */
+    static Map<String, List<String>> parseOptions(String[] args) {
+        Map<String, List<String>> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println("Unknown argument " + args[i]);
+                System.exit(2);
+            }
+            options.computeIfAbsent(args[i].substring(2), key -> new ArrayList<>()).add(args[++i]);
+        }
+        return options;
+    }
+
+    static String option(Map<String, List<String>> options, String name, String defaultValue) {
+        List<String> values = options.get(name);
+        return values == null ? defaultValue : values.get(values.size() - 1);
+    }
+
+    private static List<String> listOf(String value) {
+        List<String> list = new ArrayList<>();
+        list.add(value);
+        return list;
+    }
+}
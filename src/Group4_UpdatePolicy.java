@@ -0,0 +1,224 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Decides when the opponent model applies the offers it received.
+ *
+ * The BOA agent asks OMStrategy.canUpdateOM before every update and cleans the model up
+ * for good as soon as it says no, so throttling cannot be done there. Instead the OM
+ * strategy puts its policy in the session context, and Group4_OM queues every offer and
+ * asks the policy when to apply the queue as one batch:
+ * - EVERY_BID: every offer is applied at once, as before.
+ * - EVERY_K: the queue is applied once it holds k offers.
+ * - BUDGET: every offer adds a fixed amount of CPU time to a token bucket, and queued
+ *   offers are applied as long as the bucket is not empty. In the deterministic mode every
+ *   offer is applied at once, as measured CPU time would make runs irreproducible.
+ * - DRIFT: a Page-Hinkley test on the prediction error of the model, one minus the
+ *   utility the model gives to the offer, applies the queue when the error rises. The
+ *   first WARMUP offers are applied at once, so the model has something to predict with.
+ * In every mode the queue is applied once it holds MAX_QUEUE offers, to bound how stale
+ * the model can get. Such a batch applies at least the offers above MAX_QUEUE, also when the
+ * budget is used up.
+ */
+public class Group4_UpdatePolicy {
+
+	public enum Mode { EVERY_BID, EVERY_K, BUDGET, DRIFT }
+
+	/** Maximum number of queued offers */
+	static final int MAX_QUEUE = 64;
+
+	/** Number of offers which are applied at once in the drift mode */
+	static final int WARMUP = 10;
+
+	/** Number of offers of CPU time the token bucket can hold */
+	static final int BURST = 4;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/** Whether the CPU time of the current thread can be measured, otherwise the wall time is used */
+	private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported()
+			&& THREADS.isThreadCpuTimeEnabled();
+
+	private final Mode mode;
+	private final int k;
+	private final long budgetNanos;
+	private final double driftDelta;
+	private final double driftLambda;
+	private final boolean deterministic;
+
+	private long tokens;
+
+	// State of the Page-Hinkley test
+	private int observations;
+	private double meanError;
+	private double cumulative;
+	private double minimum;
+
+	// Statistics
+	private long offers;
+	private long applied;
+	private long batches;
+	private long drifts;
+	private double errorSum;
+
+	Group4_UpdatePolicy(Mode mode, int k, long budgetNanos, double driftDelta, double driftLambda,
+			boolean deterministic) {
+		this.mode = mode;
+		this.k = Math.max(1, k);
+		this.budgetNanos = budgetNanos;
+		this.driftDelta = driftDelta;
+		this.driftLambda = driftLambda;
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Creates the policy from the parameters of an OM strategy.
+	 *
+	 * @param parameters the parameters of the OM strategy.
+	 * @param context the context of the session.
+	 * @return The policy, or null if every offer is applied at once.
+	 */
+	public static Group4_UpdatePolicy of(Map<String, Double> parameters, Group4_SessionContext context) {
+		int policy = parameters.get("updatePolicy") == null ? 0 : parameters.get("updatePolicy").intValue();
+		if (policy <= 0 || policy >= Mode.values().length) {
+			return null;
+		}
+		int k = parameters.get("updateEvery") == null ? 4 : parameters.get("updateEvery").intValue();
+		double budget = parameters.get("updateBudget") == null ? 100 : parameters.get("updateBudget");
+		double delta = parameters.get("driftDelta") == null ? 0.005 : parameters.get("driftDelta");
+		double lambda = parameters.get("driftLambda") == null ? 0.5 : parameters.get("driftLambda");
+		return new Group4_UpdatePolicy(Mode.values()[policy], k, (long) (budget * 1000), delta, lambda,
+				context.isDeterministic());
+	}
+
+	/**
+	 * @return The CPU time of the current thread in nanoseconds, to measure updates against the
+	 * budget. Falls back to the wall time on a JVM that cannot measure thread CPU time.
+	 */
+	public static long cpuTime() {
+		return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+
+	/**
+	 * Adds the parameters of the policy to the parameter specification of an OM strategy.
+	 */
+	public static void addParameters(Set<BOAparameter> set) {
+		set.add(new BOAparameter("updatePolicy", 0.0, "When the OM applies offers: 0 every bid, 1 every k bids, 2 within a CPU budget, 3 on drift"));
+		set.add(new BOAparameter("updateEvery", 4.0, "Number of offers per batch of update policy 1"));
+		set.add(new BOAparameter("updateBudget", 100.0, "Microseconds of model updates per received offer of update policy 2"));
+		set.add(new BOAparameter("driftDelta", 0.005, "Tolerated change of the prediction error of update policy 3"));
+		set.add(new BOAparameter("driftLambda", 0.5, "Threshold of the Page-Hinkley test of update policy 3"));
+	}
+
+	/**
+	 * Records a received offer, which the model has queued.
+	 *
+	 * @param error prediction error of the model for the offer, between 0 and 1.
+	 * @param queued number of queued offers, including this one.
+	 * @return If the queued offers should be applied now.
+	 */
+	public synchronized boolean offer(double error, int queued) {
+		offers++;
+		errorSum += error;
+		boolean apply;
+		switch (mode) {
+			case EVERY_K:
+				apply = queued >= k;
+				break;
+			case BUDGET:
+				tokens = Math.min(tokens + budgetNanos, BURST * budgetNanos);
+				apply = deterministic || tokens > 0;
+				break;
+			case DRIFT:
+				apply = drift(error) || offers <= WARMUP;
+				break;
+			default:
+				apply = true;
+		}
+		return apply || queued >= MAX_QUEUE;
+	}
+
+	/**
+	 * @param queued number of offers which are still queued.
+	 * @return If one more queued offer may be applied in the current batch.
+	 */
+	public synchronized boolean canApply(int queued) {
+		return mode != Mode.BUDGET || deterministic || tokens > 0 || queued >= MAX_QUEUE;
+	}
+
+	/**
+	 * Records that a queued offer was applied.
+	 *
+	 * @param nanos CPU time the update took.
+	 */
+	public synchronized void applied(long nanos) {
+		applied++;
+		if (mode == Mode.BUDGET) {
+			tokens -= nanos;
+		}
+	}
+
+	/**
+	 * Records that a batch was applied.
+	 */
+	public synchronized void batchApplied() {
+		batches++;
+	}
+
+	/**
+	 * Page-Hinkley test for an increase of the mean error. Resets after a drift, so that the
+	 * model gets time to learn the new behaviour.
+	 */
+	private boolean drift(double error) {
+		observations++;
+		meanError += (error - meanError) / observations;
+		cumulative += error - meanError - driftDelta;
+		minimum = Math.min(minimum, cumulative);
+		if (cumulative - minimum > driftLambda) {
+			drifts++;
+			observations = 0;
+			meanError = 0;
+			cumulative = 0;
+			minimum = 0;
+			return true;
+		}
+		return false;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return Number of offers applied per received offer.
+	 */
+	public synchronized double getAppliedRatio() {
+		return offers == 0 ? 0 : (double) applied / offers;
+	}
+
+	/**
+	 * @return Mean number of offers per applied batch.
+	 */
+	public synchronized double getMeanBatchSize() {
+		return batches == 0 ? 0 : (double) applied / batches;
+	}
+
+	/**
+	 * @return Number of drifts found by the drift mode.
+	 */
+	public synchronized long getDrifts() {
+		return drifts;
+	}
+
+	/**
+	 * @return Mean prediction error of the model for the received offers, to measure the
+	 * quality of the model under the policy.
+	 */
+	public synchronized double getMeanPredictionError() {
+		return offers == 0 ? Double.NaN : errorSum / offers;
+	}
+}
@@ -15,28 +15,49 @@ import genius.core.utility.AdditiveUtilitySpace;
 import java.util.*;
 
 public class Group4_OM extends OpponentModel {
-    private BayesianOpponentModel model;
+    /** Evaluation of every bid before the first offer, when nothing is known about the opponent */
+    private static final double FLAT_EVALUATION = 1.0;
+
+    private volatile BayesianOpponentModel model;
     private int startingBidIssue = 0;
     private Set<Bid> offers;
     private double attribute_weights[];
+    private boolean mostProbableUSHypsOnly;
 
 
     public void init(NegotiationSession session, Map<String, Double> var2) {
         this.negotiationSession = session;
-        this.model = new BayesianOpponentModel((AdditiveUtilitySpace)session.getUtilitySpace());
+        // The hypothesis space is built on the first offer of the opponent, see model()
+        this.model = null;
         if (var2.get("m") != null) {
-            this.model.setMostProbableUSHypsOnly((Double)var2.get("m") > 0.0D);
+            this.mostProbableUSHypsOnly = (Double)var2.get("m") > 0.0D;
         } else {
-            this.model.setMostProbableUSHypsOnly(false);
+            this.mostProbableUSHypsOnly = false;
             System.out.println("Constant \"m\" was not set. Assumed default value.");
         }
 
-        while(!this.testIndexOfFirstIssue(session.getUtilitySpace().getDomain().getRandomBid((Random)null), this.startingBidIssue)) {
-            ++this.startingBidIssue;
+        // The first issue index is the lowest issue number of the domain. It is read from the
+        // domain instead of probing a random bid, so that deterministic runs stay reproducible.
+        this.startingBidIssue = Integer.MAX_VALUE;
+        for (Issue issue : session.getUtilitySpace().getDomain().getIssues()) {
+            this.startingBidIssue = Math.min(this.startingBidIssue, issue.getNumber());
         }
 
     }
 
+    /**
+     * Builds the hypothesis space on first use. Until the first offer of the opponent the model
+     * is flat, so the evaluations for our first bid do not build it, and it is built in
+     * updateModel while the opponent's offer is being received.
+     */
+    private synchronized BayesianOpponentModel model() {
+        if (this.model == null) {
+            this.model = new BayesianOpponentModel((AdditiveUtilitySpace)this.negotiationSession.getUtilitySpace());
+            this.model.setMostProbableUSHypsOnly(this.mostProbableUSHypsOnly);
+        }
+        return this.model;
+    }
+
     private boolean testIndexOfFirstIssue(Bid var1, int var2) {
         try {
             ValueDiscrete var3 = (ValueDiscrete)var1.getValue(var2);
@@ -48,7 +69,7 @@ public class Group4_OM extends OpponentModel {
 
     public void updateModel(Bid bid_1, double time) {
         try {
-            this.model.updateBeliefs(bid_1);
+            this.model().updateBeliefs(bid_1);
         } catch (Exception var5) {
             var5.printStackTrace();
         }
@@ -56,8 +77,11 @@ public class Group4_OM extends OpponentModel {
     }
 
     public double getBidEvaluation(Bid bid_1) {
+        if (this.model == null) {
+            return FLAT_EVALUATION;
+        }
         try {
-            return this.model.getNormalizedUtility(bid_1);
+            return this.model().getNormalizedUtility(bid_1);
         } catch (Exception var3) {
             var3.printStackTrace();
             return 0.0D;
@@ -65,11 +89,14 @@ public class Group4_OM extends OpponentModel {
     }
 
     public double getWeight(Issue var1) {
-        return this.model.getNormalizedWeight(var1, this.startingBidIssue);
+        if (this.model == null) {
+            return 1.0D / this.negotiationSession.getUtilitySpace().getDomain().getIssues().size();
+        }
+        return this.model().getNormalizedWeight(var1, this.startingBidIssue);
     }
 
     public AdditiveUtilitySpace getOpponentUtilitySpace() {
-        return new OpponentModelUtilSpace(this.model);
+        return new OpponentModelUtilSpace(this.model());
     }
 
     public void cleanUp() {